@@ -0,0 +1,157 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Collects warnings, counting them per kind. Only the first warnings are
+ * retained, to limit memory usage for large batches. Instances are
+ * thread-safe and don't block, so a single instance may be shared by parsers
+ * running in parallel.
+ *
+ * @author Gerrit Meinders
+ */
+public class ParseDiagnostics
+	implements ParseListener
+{
+	/**
+	 * Default number of warnings that are retained.
+	 */
+	public static final int DEFAULT_RETAINED_WARNINGS = 100;
+
+	/**
+	 * Number of warnings of each kind.
+	 */
+	private final Map<ParseWarning.Kind, LongAdder> _counts = new EnumMap<ParseWarning.Kind, LongAdder>( ParseWarning.Kind.class );
+
+	/**
+	 * Warnings that are retained.
+	 */
+	private final Queue<ParseWarning> _warnings = new ConcurrentLinkedQueue<ParseWarning>();
+
+	/**
+	 * Number of warnings that may be retained.
+	 */
+	private final int _retainedWarnings;
+
+	/**
+	 * Number of warnings that were retained.
+	 */
+	private final AtomicInteger _retainedCount = new AtomicInteger();
+
+	/**
+	 * Constructs a new instance that retains up to {@link
+	 * #DEFAULT_RETAINED_WARNINGS} warnings.
+	 */
+	public ParseDiagnostics()
+	{
+		this( DEFAULT_RETAINED_WARNINGS );
+	}
+
+	/**
+	 * Constructs a new instance.
+	 *
+	 * @param retainedWarnings Number of warnings that are retained.
+	 */
+	public ParseDiagnostics( final int retainedWarnings )
+	{
+		_retainedWarnings = retainedWarnings;
+		for ( final ParseWarning.Kind kind : ParseWarning.Kind.values() )
+		{
+			_counts.put( kind, new LongAdder() );
+		}
+	}
+
+	@Override
+	public void warning( final ParseWarning warning )
+	{
+		_counts.get( warning.getKind() ).increment();
+
+		if ( _retainedCount.get() < _retainedWarnings &&
+		     _retainedCount.getAndIncrement() < _retainedWarnings )
+		{
+			_warnings.add( warning );
+		}
+	}
+
+	/**
+	 * Returns the number of warnings of the given kind.
+	 *
+	 * @param kind Kind of warning.
+	 *
+	 * @return Number of warnings.
+	 */
+	public long getCount( final ParseWarning.Kind kind )
+	{
+		return _counts.get( kind ).sum();
+	}
+
+	/**
+	 * Returns the total number of warnings.
+	 *
+	 * @return Number of warnings.
+	 */
+	public long getTotalCount()
+	{
+		long result = 0;
+		for ( final LongAdder count : _counts.values() )
+		{
+			result += count.sum();
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of warnings of each kind that occurred at least
+	 * once.
+	 *
+	 * @return Number of warnings per kind.
+	 */
+	public Map<ParseWarning.Kind, Long> getCounts()
+	{
+		final Map<ParseWarning.Kind, Long> result = new EnumMap<ParseWarning.Kind, Long>( ParseWarning.Kind.class );
+		for ( final Map.Entry<ParseWarning.Kind, LongAdder> entry : _counts.entrySet() )
+		{
+			final long count = entry.getValue().sum();
+			if ( count > 0 )
+			{
+				result.put( entry.getKey(), count );
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the warnings that were retained, in the order they were
+	 * received.
+	 *
+	 * @return Retained warnings.
+	 */
+	public List<ParseWarning> getWarnings()
+	{
+		return new ArrayList<ParseWarning>( _warnings );
+	}
+
+	@Override
+	public String toString()
+	{
+		return super.toString() + "[total=" + getTotalCount() + ", counts=" + getCounts() + "]";
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io;
+
+/**
+ * Receives warnings about recoverable problems found while reading a file.
+ * Implementations may be called from multiple threads concurrently.
+ *
+ * @author Gerrit Meinders
+ * @see ParseDiagnostics
+ */
+public interface ParseListener
+{
+	/**
+	 * Prints the message of each warning to {@link System#err}, as is. This
+	 * is the default.
+	 */
+	ParseListener STANDARD_ERROR = warning -> System.err.println( warning.getMessage() );
+
+	/**
+	 * Ignores all warnings.
+	 */
+	ParseListener IGNORE = warning -> {
+	};
+
+	/**
+	 * Called when a recoverable problem is found.
+	 *
+	 * @param warning Description of the problem.
+	 */
+	void warning( ParseWarning warning );
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io;
+
+/**
+ * A recoverable problem found while reading a file, e.g. a checksum mismatch
+ * or an unsupported value that is replaced by a default.
+ *
+ * @author Gerrit Meinders
+ */
+public final class ParseWarning
+{
+	private final Kind _kind;
+
+	private final long _offset;
+
+	private final String _message;
+
+	/**
+	 * Constructs a new instance.
+	 *
+	 * @param kind    Kind of warning.
+	 * @param offset  Offset in the file where the problem was found; {@code
+	 *                -1} if unknown.
+	 * @param message Description of the problem.
+	 */
+	public ParseWarning( final Kind kind, final long offset, final String message )
+	{
+		if ( kind == null )
+		{
+			throw new NullPointerException( "kind" );
+		}
+		_kind = kind;
+		_offset = offset;
+		_message = message;
+	}
+
+	public Kind getKind()
+	{
+		return _kind;
+	}
+
+	/**
+	 * Returns the offset in the file where the problem was found.
+	 *
+	 * @return Offset in bytes; {@code -1} if unknown.
+	 */
+	public long getOffset()
+	{
+		return _offset;
+	}
+
+	public String getMessage()
+	{
+		return _message;
+	}
+
+	@Override
+	public String toString()
+	{
+		return _kind + ( _offset < 0 ? "" : " at " + _offset ) + ": " + _message;
+	}
+
+	/**
+	 * Kind of warning.
+	 */
+	public enum Kind
+	{
+		/**
+		 * Checksum of decompressed content doesn't match.
+		 */
+		CHECKSUM_MISMATCH,
+
+		/**
+		 * Embedded media isn't preceded by the usual zero bytes.
+		 */
+		UNEXPECTED_MEDIA_HEADER,
+
+		/**
+		 * Presentation doesn't start with the expected identifier.
+		 */
+		UNEXPECTED_PRESENTATION_IDENTIFIER,
+
+		/**
+		 * Aspect ratio of a background isn't supported; the default is used.
+		 */
+		UNSUPPORTED_ASPECT_RATIO,
+
+		/**
+		 * RTF code page isn't supported.
+		 */
+		UNSUPPORTED_CODE_PAGE,
+
+		/**
+		 * Character set specified in an RTF document isn't supported.
+		 */
+		UNSUPPORTED_CHARSET,
+
+		/**
+		 * String is too long for its field when writing; it is truncated.
+		 */
+		TRUNCATED_STRING
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io.ews;
+
+import java.awt.*;
+
+/**
+ * Converts between {@link RgbColor} and {@link Color}.
+ *
+ * @author Gerrit Meinders
+ */
+public final class AwtColors
+{
+	private AwtColors()
+	{
+	}
+
+	/**
+	 * Converts the given color to an AWT color.
+	 *
+	 * @param color Color to be converted; may be {@code null}.
+	 *
+	 * @return AWT color; {@code null} if {@code color} is {@code null}.
+	 */
+	public static Color toAwt( final RgbColor color )
+	{
+		return ( color == null ) ? null : new Color( color.getRgb(), false );
+	}
+
+	/**
+	 * Converts the given AWT color. The alpha component is ignored.
+	 *
+	 * @param color AWT color to be converted; may be {@code null}.
+	 *
+	 * @return Color; {@code null} if {@code color} is {@code null}.
+	 */
+	public static RgbColor fromAwt( final Color color )
+	{
+		return ( color == null ) ? null : RgbColor.fromRgb( color.getRGB() );
+	}
+}
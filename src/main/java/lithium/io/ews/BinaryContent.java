@@ -17,16 +17,52 @@
 
 package lithium.io.ews;
 
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
 /**
  * Binary content, e.g. audio or video.
  *
+ * <p>The content is either stored as a byte array or backed by a (read-only)
+ * buffer, e.g. a slice of a memory-mapped schedule file. Content parsed with
+ * {@link ParseOptions.MediaPolicy#SKIP} has no data at all, only an offset and
+ * length, while content parsed with {@link ParseOptions.MediaPolicy#DEFER} is
+ * read when its data is first accessed.
+ *
  * @author Gerrit Meinders
  */
 public class BinaryContent
         implements Content {
     private byte[] _bytes;
+
+    /**
+     * Buffer backing the content, if not (yet) copied to {@link #_bytes}.
+     */
+    private ByteBuffer _buffer;
+
+    /**
+     * Offset of the content in the schedule file it was parsed from, if known.
+     */
+    private long _offset = -1L;
+
+    /**
+     * Length of the content, if not loaded.
+     */
+    private int _unloadedLength = 0;
+
+    /**
+     * Reads the content on demand, if deferred.
+     */
+    private MediaLoader _loader;
+
     private boolean precededByZeros = true;
 
+    /**
+     * Whether the content was changed since {@link #clearModified()}.
+     */
+    private boolean _modified = false;
+
     /**
      * Constructs a new instance.
      */
@@ -37,17 +73,211 @@ public class BinaryContent
         setBytes(bytes);
     }
 
+    public BinaryContent(final ByteBuffer buffer) {
+        setBuffer(buffer);
+    }
+
     public void setBytes(final byte[] bytes) {
         _bytes = bytes;
+        _buffer = null;
+        clearSource();
+        _modified = true;
     }
 
-    public byte[] getBytes() {
+    /**
+     * Returns the content as a byte array. If the content is backed by a
+     * buffer, its bytes are copied into a new array on first access, which
+     * then replaces the buffer. Changes to the returned array therefore
+     * change the content, so the content is considered modified after this
+     * call. Use {@link #getBuffer()} to only read the content.
+     *
+     * @return Content bytes.
+     */
+    public synchronized byte[] getBytes() {
+        _modified = true;
+        if (_bytes == null) {
+            final ByteBuffer buffer = loadBuffer();
+            if (buffer != null) {
+                final byte[] bytes = new byte[buffer.remaining()];
+                buffer.duplicate().get(bytes);
+                _bytes = bytes;
+                _buffer = null;
+            }
+        }
         return _bytes;
     }
 
+    /**
+     * Sets a buffer containing the content. The remaining bytes of the buffer
+     * make up the content; the buffer is not copied.
+     *
+     * @param buffer Buffer to be set.
+     */
+    public void setBuffer(final ByteBuffer buffer) {
+        _buffer = buffer == null ? null : buffer.asReadOnlyBuffer();
+        _bytes = null;
+        clearSource();
+        _modified = true;
+    }
+
+    /**
+     * Returns a read-only buffer containing the content, without copying it.
+     *
+     * @return Content buffer.
+     */
+    public ByteBuffer getBuffer() {
+        final ByteBuffer result;
+        final ByteBuffer buffer;
+        final byte[] bytes;
+        synchronized (this) {
+            buffer = loadBuffer();
+            bytes = _bytes;
+        }
+        if (buffer != null) {
+            result = buffer.duplicate();
+        } else if (bytes != null) {
+            result = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        } else {
+            result = null;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the length of the content in bytes.
+     *
+     * @return Content length.
+     */
+    public int getLength() {
+        if (_bytes != null) {
+            return _bytes.length;
+        } else if (_buffer != null) {
+            return _buffer.remaining();
+        }
+        return _unloadedLength;
+    }
+
+    /**
+     * Returns the offset of the content in the schedule file it was parsed
+     * from. This is available even if the content was skipped.
+     *
+     * @return Offset in the file; {@code -1} if unknown.
+     */
+    public long getOffset() {
+        return _offset;
+    }
+
+    /**
+     * Returns whether the data of the content is loaded.
+     *
+     * @return {@code true} if loaded; {@code false} if skipped, deferred or
+     *         not set.
+     */
+    public boolean isLoaded() {
+        return _bytes != null || _buffer != null;
+    }
+
+    /**
+     * Returns whether the data of the content can be accessed, i.e. whether
+     * it is either loaded or deferred.
+     *
+     * @return {@code true} if the content has data.
+     */
+    public boolean isAvailable() {
+        return isLoaded() || _loader != null;
+    }
+
+    /**
+     * Sets the location of the content in the schedule file, without loading
+     * it.
+     *
+     * @param offset Offset in the file.
+     * @param length Length of the content.
+     * @param loader Loader for deferred content; {@code null} if skipped.
+     */
+    void setSource(final long offset, final int length, final MediaLoader loader) {
+        _bytes = null;
+        _buffer = null;
+        _offset = offset;
+        _unloadedLength = length;
+        _loader = loader;
+    }
+
+    void setOffset(final long offset) {
+        _offset = offset;
+    }
+
+    /**
+     * Returns whether the content was changed since the last call to
+     * {@link #clearModified()}, including through the array returned by
+     * {@link #getBytes()}.
+     */
+    synchronized boolean isModified() {
+        return _modified;
+    }
+
+    /**
+     * Marks the content as unmodified.
+     */
+    synchronized void clearModified() {
+        _modified = false;
+    }
+
+    private void clearSource() {
+        _offset = -1L;
+        _unloadedLength = 0;
+        _loader = null;
+    }
+
+    /**
+     * Writes the content to the given channel. Deferred content is written
+     * without loading it, which for content from a file means that it is
+     * transferred directly from that file.
+     *
+     * @param target Channel to write to.
+     *
+     * @throws IOException if the content is not available or can't be read
+     * or written.
+     */
+    void writeTo(final WritableByteChannel target) throws IOException {
+        final MediaLoader loader;
+        final long offset;
+        final int length;
+        synchronized (this) {
+            loader = (_buffer == null && _bytes == null) ? _loader : null;
+            offset = _offset;
+            length = _unloadedLength;
+        }
+
+        if (loader != null) {
+            loader.transferTo(offset, length, target);
+        } else {
+            final ByteBuffer buffer = getBuffer();
+            if (buffer == null) {
+                throw new IOException("Content is not available: " + this);
+            }
+            Tools.writeFully(target, buffer);
+        }
+    }
+
+    /**
+     * Returns the buffer backing the content, reading it first if deferred.
+     */
+    private synchronized ByteBuffer loadBuffer() {
+        if (_buffer == null && _bytes == null && _loader != null) {
+            try {
+                _buffer = _loader.load(_offset, _unloadedLength).asReadOnlyBuffer();
+            } catch (final IOException e) {
+                throw new UncheckedIOException("Failed to load deferred content at offset " + _offset, e);
+            }
+            _loader = null;
+        }
+        return _buffer;
+    }
+
     @Override
     public String toString() {
-        return super.toString() + "[length=" + _bytes.length + "]";
+        return super.toString() + "[length=" + getLength() + "]";
     }
 
     public boolean isPrecededByZeros()
@@ -58,5 +288,6 @@ public class BinaryContent
     public void setPrecededByZeros( final boolean precededByZeros )
     {
         this.precededByZeros = precededByZeros;
+        _modified = true;
     }
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io.ews;
+
+import java.nio.*;
+import java.nio.charset.*;
+
+/**
+ * Decodes fixed-width, null-terminated strings, re-using its buffers between
+ * calls. Only the resulting strings are allocated. Instances are not
+ * thread-safe.
+ *
+ * @author Gerrit Meinders
+ */
+class CStringDecoder
+{
+	private final Charset _charset;
+
+	private final CharsetDecoder _decoder;
+
+	/**
+	 * Whether the character set maps bytes 0x00 to 0x7f to the same
+	 * (ASCII) characters.
+	 */
+	private final boolean _asciiCompatible;
+
+	private byte[] _bytes = new byte[ 0 ];
+
+	private ByteBuffer _byteBuffer;
+
+	private char[] _chars = new char[ 0 ];
+
+	private CharBuffer _charBuffer;
+
+	/**
+	 * Constructs a new instance.
+	 *
+	 * @param charset Character set to be used.
+	 */
+	CStringDecoder( final Charset charset )
+	{
+		_charset = charset;
+		_decoder = charset.newDecoder()
+		                  .onMalformedInput( CodingErrorAction.REPLACE )
+		                  .onUnmappableCharacter( CodingErrorAction.REPLACE );
+		_asciiCompatible = isAsciiCompatible( charset );
+		ensureCapacity( 256 );
+	}
+
+	Charset getCharset()
+	{
+		return _charset;
+	}
+
+	/**
+	 * Parses a null-terminated string of up to {@code length} bytes, with the
+	 * same semantics as {@link Tools#parsePaddedCString}.
+	 *
+	 * @param buffer Buffer to read from.
+	 * @param length Maximum string length; also the number of bytes to read.
+	 *
+	 * @return Parsed string.
+	 */
+	String decodePadded( final ByteBuffer buffer, final int length )
+	{
+		final int start = buffer.position();
+		final int terminator = Tools.indexOfNul( buffer, start, length );
+		final int stringLength = ( terminator == -1 ) ? length : terminator - start;
+
+		final String result;
+		if ( stringLength == 0 )
+		{
+			result = "";
+		}
+		else
+		{
+			ensureCapacity( stringLength );
+			buffer.get( _bytes, 0, stringLength );
+			result = decode( stringLength );
+		}
+
+		// Unterminated strings are one byte shorter; see Tools.parsePaddedCString.
+		buffer.position( start + length - ( terminator == -1 ? 1 : 0 ) );
+		return result;
+	}
+
+	private String decode( final int length )
+	{
+		if ( _asciiCompatible )
+		{
+			final byte[] bytes = _bytes;
+			final char[] chars = _chars;
+			int i = 0;
+			while ( i < length && bytes[ i ] >= 0 )
+			{
+				chars[ i ] = (char)bytes[ i ];
+				i++;
+			}
+			if ( i == length )
+			{
+				return new String( chars, 0, length );
+			}
+		}
+
+		final ByteBuffer in = _byteBuffer;
+		in.clear();
+		in.limit( length );
+		final CharBuffer out = _charBuffer;
+		out.clear();
+		_decoder.reset();
+		_decoder.decode( in, out, true );
+		_decoder.flush( out );
+		return new String( _chars, 0, out.position() );
+	}
+
+	private void ensureCapacity( final int length )
+	{
+		if ( _bytes.length < length )
+		{
+			_bytes = new byte[ length ];
+			_byteBuffer = ByteBuffer.wrap( _bytes );
+			_chars = new char[ (int)Math.ceil( length * (double)_decoder.maxCharsPerByte() ) ];
+			_charBuffer = CharBuffer.wrap( _chars );
+		}
+	}
+
+	private static boolean isAsciiCompatible( final Charset charset )
+	{
+		final byte[] ascii = new byte[ 0x80 ];
+		for ( int i = 0; i < ascii.length; i++ )
+		{
+			ascii[ i ] = (byte)i;
+		}
+
+		final String decoded = new String( ascii, charset );
+		if ( decoded.length() != ascii.length )
+		{
+			return false;
+		}
+		for ( int i = 0; i < ascii.length; i++ )
+		{
+			if ( decoded.charAt( i ) != i )
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io.ews;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+/**
+ * Reads ranges of a schedule file from a channel. If the channel is seekable,
+ * ranges are read at their position. Otherwise, the channel is read forward
+ * only, so each range must start after the previous one, or within it.
+ *
+ * @author Gerrit Meinders
+ */
+abstract class ChannelSource
+{
+	/**
+	 * Returns a source for the given channel.
+	 *
+	 * @param channel Channel to read from.
+	 *
+	 * @return Channel source.
+	 */
+	static ChannelSource of( final ReadableByteChannel channel )
+	{
+		return ( channel instanceof SeekableByteChannel ) ? new Seekable( (SeekableByteChannel)channel ) : new ForwardOnly( channel );
+	}
+
+	/**
+	 * Returns a source that reads the given channel forward only, even if it
+	 * is seekable.
+	 *
+	 * @param channel Channel to read from.
+	 *
+	 * @return Channel source.
+	 */
+	static ChannelSource forwardOnly( final ReadableByteChannel channel )
+	{
+		return new ForwardOnly( channel );
+	}
+
+	/**
+	 * Returns whether ranges can be read in any order.
+	 *
+	 * @return {@code true} if the source is seekable.
+	 */
+	abstract boolean isSeekable();
+
+	/**
+	 * Returns the size of the underlying file, if seekable.
+	 *
+	 * @return Size in bytes; {@code -1} if unknown.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	abstract long size()
+		throws IOException;
+
+	/**
+	 * Reads up to the specified number of bytes, which is less only if the end
+	 * of the channel is reached.
+	 *
+	 * @param position Position to start reading at.
+	 * @param length   Maximum number of bytes to read.
+	 *
+	 * @return Little-endian buffer containing the bytes that were read.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	abstract ByteBuffer read( long position, int length )
+		throws IOException;
+
+	/**
+	 * Reads everything from the given position up to the end of the channel.
+	 *
+	 * @param position Position to start reading at.
+	 *
+	 * @return Little-endian buffer containing the bytes that were read.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	abstract ByteBuffer readRemaining( long position )
+		throws IOException;
+
+	/**
+	 * Reads exactly the specified number of bytes.
+	 *
+	 * @param position Position to start reading at.
+	 * @param length   Number of bytes to read.
+	 *
+	 * @return Little-endian buffer containing the bytes that were read.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 * @throws EOFException if the end of the channel is reached first.
+	 */
+	ByteBuffer readFully( final long position, final int length )
+		throws IOException
+	{
+		final ByteBuffer result = read( position, length );
+		if ( result.remaining() < length )
+		{
+			throw new EOFException( "Expected " + length + " bytes at " + position + ", but was only " + result.remaining() );
+		}
+		return result;
+	}
+
+	/**
+	 * Reads from the channel until the buffer is full or the end of the
+	 * channel is reached.
+	 */
+	static void readFully( final ReadableByteChannel channel, final ByteBuffer buffer )
+		throws IOException
+	{
+		while ( buffer.hasRemaining() )
+		{
+			if ( channel.read( buffer ) == -1 )
+			{
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Size of the chunks used by {@link #readToEnd}.
+	 */
+	private static final int CHUNK_SIZE = 0x10000;
+
+	/**
+	 * Reads the entire channel into a buffer of exactly the right size,
+	 * preceded by the given bytes.
+	 *
+	 * @param channel Channel to read from.
+	 * @param head    Bytes to put before the content of the channel.
+	 */
+	static ByteBuffer readToEnd( final ReadableByteChannel channel, final ByteBuffer head )
+		throws IOException
+	{
+		return readChunked( channel, head, Long.MAX_VALUE );
+	}
+
+	/**
+	 * Reads up to the given number of bytes into a buffer of exactly the
+	 * right size, preceded by the given bytes. The channel is read in
+	 * fixed-size chunks, which are copied into the result only once. Memory
+	 * is therefore only allocated for bytes that are actually read, even if
+	 * the requested length is bogus.
+	 *
+	 * @param channel   Channel to read from.
+	 * @param head      Bytes to put before the content of the channel.
+	 * @param maxLength Maximum number of bytes to read from the channel.
+	 */
+	static ByteBuffer readChunked( final ReadableByteChannel channel, final ByteBuffer head, final long maxLength )
+		throws IOException
+	{
+		final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+		long read = 0;
+		while ( read < maxLength )
+		{
+			final ByteBuffer chunk = ByteBuffer.allocate( (int)Math.min( CHUNK_SIZE, maxLength - read ) );
+			readFully( channel, chunk );
+			chunk.flip();
+			read += chunk.remaining();
+			if ( head.remaining() + read > Integer.MAX_VALUE )
+			{
+				throw new IOException( "Content is too large: more than " + Integer.MAX_VALUE + " bytes" );
+			}
+			if ( chunk.hasRemaining() )
+			{
+				chunks.add( chunk );
+			}
+			if ( chunk.limit() < chunk.capacity() )
+			{
+				break;
+			}
+		}
+
+		if ( !head.hasRemaining() && chunks.size() == 1 && chunks.get( 0 ).limit() == chunks.get( 0 ).capacity() )
+		{
+			return chunks.get( 0 ).order( ByteOrder.LITTLE_ENDIAN );
+		}
+
+		final ByteBuffer result = ByteBuffer.allocate( (int)( head.remaining() + read ) );
+		result.put( head );
+		for ( final ListIterator<ByteBuffer> i = chunks.listIterator(); i.hasNext(); )
+		{
+			result.put( i.next() );
+			// Release each chunk as soon as it's copied.
+			i.set( null );
+		}
+		result.flip();
+		return result.order( ByteOrder.LITTLE_ENDIAN );
+	}
+
+	/**
+	 * Reads ranges at their position, using a seekable channel.
+	 */
+	private static class Seekable
+		extends ChannelSource
+	{
+		private final SeekableByteChannel _channel;
+
+		Seekable( final SeekableByteChannel channel )
+		{
+			_channel = channel;
+		}
+
+		@Override
+		boolean isSeekable()
+		{
+			return true;
+		}
+
+		@Override
+		long size()
+			throws IOException
+		{
+			return _channel.size();
+		}
+
+		@Override
+		synchronized ByteBuffer read( final long position, final int length )
+			throws IOException
+		{
+			final ByteBuffer result = ByteBuffer.allocate( length );
+			_channel.position( position );
+			readFully( _channel, result );
+			result.flip();
+			return result.order( ByteOrder.LITTLE_ENDIAN );
+		}
+
+		@Override
+		synchronized ByteBuffer readRemaining( final long position )
+			throws IOException
+		{
+			final long length = _channel.size() - position;
+			if ( length > Integer.MAX_VALUE )
+			{
+				throw new IOException( "Content is too large: " + length + " bytes" );
+			}
+			return read( position, (int)Math.max( length, 0L ) );
+		}
+	}
+
+	/**
+	 * Reads ranges from a channel that can only be read forward. The most
+	 * recently read range is kept, so a subsequent range may start within it.
+	 */
+	private static class ForwardOnly
+		extends ChannelSource
+	{
+		private final ReadableByteChannel _channel;
+
+		/**
+		 * Current position of the channel.
+		 */
+		private long _position = 0L;
+
+		/**
+		 * Most recently read range.
+		 */
+		private ByteBuffer _last = ByteBuffer.allocate( 0 );
+
+		/**
+		 * Position of {@link #_last}.
+		 */
+		private long _lastPosition = 0L;
+
+		ForwardOnly( final ReadableByteChannel channel )
+		{
+			_channel = channel;
+		}
+
+		@Override
+		boolean isSeekable()
+		{
+			return false;
+		}
+
+		@Override
+		long size()
+		{
+			return -1L;
+		}
+
+		@Override
+		ByteBuffer read( final long position, final int length )
+			throws IOException
+		{
+			final ByteBuffer head = ByteBuffer.allocate( (int)Math.max( 0L, Math.min( _position - position, length ) ) );
+			copyFromLast( position, head );
+			skipTo( position + head.position() );
+
+			head.flip();
+			final ByteBuffer result = readChunked( _channel, head, length - head.limit() );
+			_position += result.remaining() - head.limit();
+
+			if ( position + result.limit() == _position )
+			{
+				_last = result;
+				_lastPosition = position;
+			}
+			return result.duplicate().order( ByteOrder.LITTLE_ENDIAN );
+		}
+
+		@Override
+		ByteBuffer readRemaining( final long position )
+			throws IOException
+		{
+			final ByteBuffer head = ByteBuffer.allocate( (int)Math.max( 0L, Math.min( _position - position, Integer.MAX_VALUE ) ) );
+			copyFromLast( position, head );
+			skipTo( position + head.position() );
+
+			head.flip();
+			final ByteBuffer result = readToEnd( _channel, head );
+			_position += result.remaining() - head.limit();
+
+			_last = ByteBuffer.allocate( 0 );
+			_lastPosition = _position;
+			return result.order( ByteOrder.LITTLE_ENDIAN );
+		}
+
+		/**
+		 * Copies the part of the requested range that was already read.
+		 */
+		private void copyFromLast( final long position, final ByteBuffer result )
+			throws IOException
+		{
+			if ( position < _position )
+			{
+				if ( position < _lastPosition )
+				{
+					throw new IOException( "Channel is not seekable; can't read at " + position + " after reading up to " + _position );
+				}
+
+				final ByteBuffer available = _last.duplicate();
+				available.position( (int)( position - _lastPosition ) );
+				if ( available.remaining() > result.remaining() )
+				{
+					available.limit( available.position() + result.remaining() );
+				}
+				result.put( available );
+			}
+		}
+
+		/**
+		 * Skips any bytes before the given position.
+		 */
+		private void skipTo( final long position )
+			throws IOException
+		{
+			if ( position > _position )
+			{
+				final ByteBuffer skipped = ByteBuffer.allocate( (int)Math.min( position - _position, 0x2000 ) );
+				while ( _position < position )
+				{
+					skipped.clear();
+					skipped.limit( (int)Math.min( position - _position, skipped.capacity() ) );
+					if ( _channel.read( skipped ) == -1 )
+					{
+						throw new EOFException( "Expected data at " + position + ", but was only " + _position + " bytes" );
+					}
+					_position += skipped.position();
+				}
+			}
+		}
+	}
+}
@@ -25,7 +25,12 @@ import java.awt.*;
  */
 public class ColorBackground
         implements Background {
-    private Color _color;
+    private RgbColor _color;
+
+    /**
+     * Whether the background was changed since {@link #clearModified()}.
+     */
+    private boolean _modified = false;
 
     /**
      * Constructs a new instance.
@@ -33,15 +38,56 @@ public class ColorBackground
     public ColorBackground() {
     }
 
+    public ColorBackground(RgbColor color) {
+        setRgbColor(color);
+    }
+
     public ColorBackground(Color color) {
         setColor(color);
     }
 
-    public void setColor(Color color) {
+    public void setRgbColor(RgbColor color) {
         _color = color;
+        _modified = true;
     }
 
-    public Color getColor() {
+    public RgbColor getRgbColor() {
         return _color;
     }
+
+    /**
+     * Sets the color of the background.
+     *
+     * @param color Color to be set.
+     *
+     * @see AwtColors#fromAwt(Color)
+     */
+    public void setColor(Color color) {
+        setRgbColor(AwtColors.fromAwt(color));
+    }
+
+    /**
+     * Returns the color of the background. A new AWT color is created for
+     * each call; use {@link #getRgbColor()} to avoid loading AWT.
+     *
+     * @return Color of the background.
+     */
+    public Color getColor() {
+        return AwtColors.toAwt(getRgbColor());
+    }
+
+    /**
+     * Returns whether the background was changed since the last call to
+     * {@link #clearModified()}.
+     */
+    boolean isModified() {
+        return _modified;
+    }
+
+    /**
+     * Marks the background as unmodified.
+     */
+    void clearModified() {
+        _modified = false;
+    }
 }
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io.ews;
+
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+import java.util.zip.*;
+
+import lithium.io.*;
+import static lithium.io.ews.Tools.*;
+import lithium.io.rtf.*;
+
+/**
+ * Compressed RTF text, as stored in a schedule file, that has not been
+ * decompressed and parsed yet.
+ *
+ * @author Gerrit Meinders
+ */
+class DeflatedText
+{
+	/**
+	 * Inflater for each thread, which is reset after use instead of being
+	 * recreated for each text. Compressed text is a zlib stream, but its
+	 * header is skipped and its checksum verified separately, if at all.
+	 */
+	private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial( () -> new Inflater( true ) );
+
+	/**
+	 * Size of {@link #INPUT_BUFFER}.
+	 */
+	private static final int INPUT_BUFFER_SIZE = 0x2000;
+
+	/**
+	 * Buffer for each thread, to copy compressed text into one chunk at a
+	 * time when it's not backed by an array, e.g. when it's part of a
+	 * memory-mapped file. Its size is fixed, so a single large text doesn't
+	 * pin a large buffer to the thread.
+	 */
+	private static final ThreadLocal<byte[]> INPUT_BUFFER = ThreadLocal.withInitial( () -> new byte[ INPUT_BUFFER_SIZE ] );
+
+	/**
+	 * Length of the zlib header.
+	 */
+	private static final int ZLIB_HEADER_LENGTH = 2;
+
+	/**
+	 * Compressed content, including the trailing Adler-32 checksum.
+	 */
+	private final ByteBuffer _compressed;
+
+	/**
+	 * Array backing the compressed content, if any. It's captured before the
+	 * content is made read-only, since a read-only buffer doesn't expose its
+	 * array.
+	 */
+	private final byte[] _array;
+
+	/**
+	 * Offset of the compressed content in {@link #_array}.
+	 */
+	private final int _arrayOffset;
+
+	/**
+	 * Adler-32 checksum of the decompressed content.
+	 */
+	private final int _expectedChecksum;
+
+	/**
+	 * Length of the decompressed content.
+	 */
+	private final int _decompressedLength;
+
+	/**
+	 * Whether to verify the checksum after decompressing.
+	 */
+	private final boolean _verifyChecksum;
+
+	/**
+	 * Offset of the compressed content in the file.
+	 */
+	private final long _offset;
+
+	/**
+	 * Receives a warning if the checksum doesn't match.
+	 */
+	private final ParseListener _parseListener;
+
+	/**
+	 * Constructs a new instance.
+	 *
+	 * @param compressed         Compressed content.
+	 * @param offset             Offset of the compressed content in the file.
+	 * @param expectedChecksum   Adler-32 checksum of the decompressed content.
+	 * @param decompressedLength Length of the decompressed content.
+	 * @param verifyChecksum     Whether to verify the checksum.
+	 * @param parseListener      Receives a warning if the checksum doesn't
+	 *                           match.
+	 */
+	DeflatedText( final ByteBuffer compressed, final long offset, final int expectedChecksum, final int decompressedLength, final boolean verifyChecksum, final ParseListener parseListener )
+	{
+		if ( compressed.hasArray() )
+		{
+			_array = compressed.array();
+			_arrayOffset = compressed.arrayOffset() + compressed.position();
+		}
+		else
+		{
+			_array = null;
+			_arrayOffset = 0;
+		}
+		_compressed = compressed.asReadOnlyBuffer();
+		_offset = offset;
+		_parseListener = parseListener;
+		_expectedChecksum = expectedChecksum;
+		_decompressedLength = decompressedLength;
+		_verifyChecksum = verifyChecksum;
+	}
+
+	ByteBuffer getCompressed()
+	{
+		return _compressed.duplicate();
+	}
+
+	/**
+	 * Returns whether the compressed content is backed by an array, which is
+	 * then passed to the inflater as a whole, without copying.
+	 *
+	 * @return {@code true} if backed by an array.
+	 */
+	boolean hasArray()
+	{
+		return _array != null;
+	}
+
+	int getExpectedChecksum()
+	{
+		return _expectedChecksum;
+	}
+
+	int getDecompressedLength()
+	{
+		return _decompressedLength;
+	}
+
+	/**
+	 * Decompresses and parses the text.
+	 *
+	 * @return Parsed RTF document.
+	 *
+	 * @throws IOException if the text can't be decompressed or parsed.
+	 */
+	RtfGroup inflate()
+	throws IOException
+	{
+		final byte[] decompressed = decompress();
+		final int length = decompressed.length;
+
+		if ( _verifyChecksum )
+		{
+			final Adler32 checksum = new Adler32();
+			checksum.update( decompressed, 0, length );
+			if ( _expectedChecksum != (int)checksum.getValue() )
+			{
+				_parseListener.warning( new ParseWarning( ParseWarning.Kind.CHECKSUM_MISMATCH, _offset, "WARNING: Checksum error. Expected " + toHex( _expectedChecksum ) + ", but was " + toHex( (int)checksum.getValue() ) ) );
+			}
+		}
+
+		final RtfParser rtfParser = new RtfParser();
+		return rtfParser.parse( decompressed, 0, length );
+	}
+
+	/**
+	 * Decompresses the text in a single pass, into an array of the length
+	 * stored in the file.
+	 *
+	 * @return Decompressed text.
+	 *
+	 * @throws IOException if the text can't be decompressed.
+	 */
+	byte[] decompress()
+	throws IOException
+	{
+		final ByteBuffer compressed = getCompressed();
+		if ( compressed.remaining() < ZLIB_HEADER_LENGTH )
+		{
+			throw new EOFException( "Compressed text is too short: " + compressed.remaining() + " bytes" );
+		}
+
+		final int method = compressed.get() & 0xff;
+		final int flags = compressed.get() & 0xff;
+		if ( ( method & 0x0f ) != 8 || ( flags & 0x20 ) != 0 || ( ( method << 8 ) | flags ) % 31 != 0 )
+		{
+			throw new ZipException( "Unsupported zlib header: " + toHex( method << 8 | flags ) );
+		}
+
+		final int inputLength = compressed.remaining();
+		final Inflater inflater = INFLATER.get();
+		try
+		{
+			if ( _array != null )
+			{
+				inflater.setInput( _array, _arrayOffset + ZLIB_HEADER_LENGTH, inputLength );
+				compressed.position( compressed.limit() );
+			}
+
+			// Deflate can't compress more than about 1032:1, so a larger stored length is wrong.
+			byte[] result = new byte[ (int)Math.min( _decompressedLength, 1032L * inputLength + 0x100 ) ];
+			int length = 0;
+			while ( !inflater.finished() )
+			{
+				if ( inflater.needsInput() && compressed.hasRemaining() )
+				{
+					final byte[] input = INPUT_BUFFER.get();
+					final int chunkLength = Math.min( compressed.remaining(), input.length );
+					compressed.get( input, 0, chunkLength );
+					inflater.setInput( input, 0, chunkLength );
+				}
+
+				if ( length == result.length )
+				{
+					// The stored length is wrong; be lenient, like before.
+					result = Arrays.copyOf( result, Math.max( 2 * result.length, 0x100 ) );
+				}
+
+				final int inflated = inflater.inflate( result, length, result.length - length );
+				length += inflated;
+
+				if ( inflated == 0 && ( ( inflater.needsInput() && !compressed.hasRemaining() ) || inflater.needsDictionary() ) )
+				{
+					throw new EOFException( "Unexpected end of compressed text" );
+				}
+			}
+
+			return ( length == result.length ) ? result : Arrays.copyOf( result, length );
+		}
+		catch ( final DataFormatException e )
+		{
+			throw new ZipException( e.getMessage() );
+		}
+		finally
+		{
+			inflater.reset();
+		}
+	}
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io.ews;
+
+/**
+ * Describes where the data of a schedule entry is stored in the file. Each
+ * block is described by a {@link Region}, or {@code null} if the entry has no
+ * such block.
+ *
+ * @author Gerrit Meinders
+ */
+public class EntryLayout
+{
+	private Region _record;
+
+	private Region _content;
+
+	private Region _background;
+
+	private Region _media;
+
+	private Region _presentation;
+
+	/**
+	 * Constructs a new instance.
+	 */
+	EntryLayout()
+	{
+	}
+
+	/**
+	 * Returns the entry record in the entry table, which has a fixed length.
+	 *
+	 * @return Entry record.
+	 */
+	public Region getRecord()
+	{
+		return _record;
+	}
+
+	void setRecord( final Region record )
+	{
+		_record = record;
+	}
+
+	/**
+	 * Returns the content block, i.e. compressed text for songs and
+	 * scripture, the thumbnail of a video, or the file of other entries.
+	 *
+	 * @return Content block.
+	 */
+	public Region getContent()
+	{
+		return _content;
+	}
+
+	void setContent( final Region content )
+	{
+		_content = content;
+	}
+
+	/**
+	 * Returns the background block, i.e. the image of an image background or
+	 * the preview image of a video background.
+	 *
+	 * @return Background block.
+	 */
+	public Region getBackground()
+	{
+		return _background;
+	}
+
+	void setBackground( final Region background )
+	{
+		_background = background;
+	}
+
+	/**
+	 * Returns the media block, i.e. the embedded video of a video entry or
+	 * video background.
+	 *
+	 * @return Media block.
+	 */
+	public Region getMedia()
+	{
+		return _media;
+	}
+
+	void setMedia( final Region media )
+	{
+		_media = media;
+	}
+
+	/**
+	 * Returns the presentation block, containing slide previews.
+	 *
+	 * @return Presentation block.
+	 */
+	public Region getPresentation()
+	{
+		return _presentation;
+	}
+
+	void setPresentation( final Region presentation )
+	{
+		_presentation = presentation;
+	}
+
+	@Override
+	public String toString()
+	{
+		return super.toString() + "[record=" + _record + ", content=" + _content + ", background=" + _background + ", media=" + _media + ", presentation=" + _presentation + "]";
+	}
+
+	/**
+	 * A range of bytes in a schedule file, including any length prefixes.
+	 */
+	public static final class Region
+	{
+		private final long _offset;
+
+		private final long _length;
+
+		Region( final long offset, final long length )
+		{
+			_offset = offset;
+			_length = length;
+		}
+
+		/**
+		 * Returns a region for the given range, or {@code null} if it's empty.
+		 */
+		static Region of( final long start, final long end )
+		{
+			return ( end > start ) ? new Region( start, end - start ) : null;
+		}
+
+		public long getOffset()
+		{
+			return _offset;
+		}
+
+		public long getLength()
+		{
+			return _length;
+		}
+
+		/**
+		 * Returns the offset of the first byte after the region.
+		 *
+		 * @return End offset.
+		 */
+		public long getEnd()
+		{
+			return _offset + _length;
+		}
+
+		@Override
+		public boolean equals( final Object obj )
+		{
+			if ( obj == this )
+			{
+				return true;
+			}
+			if ( !( obj instanceof Region ) )
+			{
+				return false;
+			}
+			final Region other = (Region)obj;
+			return _offset == other._offset && _length == other._length;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Long.hashCode( _offset ) * 31 + Long.hashCode( _length );
+		}
+
+		@Override
+		public String toString()
+		{
+			return "[" + _offset + ".." + getEnd() + ")";
+		}
+	}
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io.ews;
+
+import java.nio.*;
+import java.time.*;
+import java.util.*;
+
+/**
+ * Fixed-size record from the entry table of a schedule file. A record provides
+ * the properties of a schedule entry, along with pointers to its content, but
+ * not the content itself.
+ *
+ * @author Gerrit Meinders
+ * @see EwsParser#scanIndex
+ */
+public class EntryRecord
+{
+	int _index;
+
+	long _recordOffset;
+
+	int _recordLength;
+
+	String _title;
+
+	String _mediaResource;
+
+	String _author;
+
+	String _copyright;
+
+	String _administrator;
+
+	boolean _defaultBackground;
+
+	ScheduleEntry.BackgroundType _backgroundType;
+
+	int _backgroundColor;
+
+	int _gradientColor1;
+
+	int _gradientColor2;
+
+	ScheduleEntry.GradientStyle _gradientStyle;
+
+	ScheduleEntry.GradientVariant _gradientVariant;
+
+	String _backgroundName;
+
+	LocalDateTime _timestamp;
+
+	int _contentPointer;
+
+	ScheduleEntry.Type _type;
+
+	int _presentationLength;
+
+	String _notes;
+
+	String _songNumber;
+
+	int _originalResourceLength;
+
+	int _mediaContentPointer;
+
+	ScheduleEntry.AspectRatio _aspectRatio;
+
+	/**
+	 * Original bytes of the record; {@code null} unless raw data is kept.
+	 *
+	 * @see ParseOptions#setKeepRawData
+	 */
+	ByteBuffer _raw;
+
+	/**
+	 * Constructs a new instance.
+	 */
+	EntryRecord()
+	{
+	}
+
+	/**
+	 * Returns the index of the entry in the schedule.
+	 *
+	 * @return Index of the entry.
+	 */
+	public int getIndex()
+	{
+		return _index;
+	}
+
+	/**
+	 * Returns the position of the record in the file.
+	 *
+	 * @return Position of the record.
+	 */
+	public long getRecordOffset()
+	{
+		return _recordOffset;
+	}
+
+	/**
+	 * Returns the length of the record, which depends on the file version.
+	 *
+	 * @return Length of the record.
+	 */
+	public int getRecordLength()
+	{
+		return _recordLength;
+	}
+
+	public String getTitle()
+	{
+		return _title;
+	}
+
+	public String getMediaResource()
+	{
+		return _mediaResource;
+	}
+
+	public String getAuthor()
+	{
+		return _author;
+	}
+
+	public String getCopyright()
+	{
+		return _copyright;
+	}
+
+	public String getAdministrator()
+	{
+		return _administrator;
+	}
+
+	public Date getTimestamp()
+	{
+		return ScheduleEntry.toDate( _timestamp );
+	}
+
+	public LocalDateTime getLocalTimestamp()
+	{
+		return _timestamp;
+	}
+
+	public ScheduleEntry.Type getType()
+	{
+		return _type;
+	}
+
+	/**
+	 * Returns the notes for the entry. Not available in files before version 3.
+	 *
+	 * @return Notes, or {@code null}.
+	 */
+	public String getNotes()
+	{
+		return _notes;
+	}
+
+	/**
+	 * Returns the song number. Not available in files before version 3.
+	 *
+	 * @return Song number, or {@code null}.
+	 */
+	public String getSongNumber()
+	{
+		return _songNumber;
+	}
+
+	/**
+	 * Returns whether the entry uses the default background.
+	 *
+	 * @return {@code true} for the default background.
+	 */
+	public boolean isDefaultBackground()
+	{
+		return _defaultBackground;
+	}
+
+	public ScheduleEntry.BackgroundType getBackgroundType()
+	{
+		return _backgroundType;
+	}
+
+	/**
+	 * Returns the name of the background image or video, if any.
+	 *
+	 * @return Background name.
+	 */
+	public String getBackgroundName()
+	{
+		return _backgroundName;
+	}
+
+	/**
+	 * Returns the position of the content of the entry.
+	 *
+	 * @return Content pointer.
+	 */
+	public int getContentPointer()
+	{
+		return _contentPointer;
+	}
+
+	/**
+	 * Returns the position of embedded media, i.e. a video or background
+	 * video.
+	 *
+	 * @return Media content pointer, or {@code 0} if there are no embedded
+	 * media.
+	 */
+	public int getMediaContentPointer()
+	{
+		return _mediaContentPointer;
+	}
+
+	/**
+	 * Returns the length of the slide previews of a presentation.
+	 *
+	 * @return Presentation length, or {@code 0}.
+	 */
+	public int getPresentationLength()
+	{
+		return _presentationLength;
+	}
+
+	/**
+	 * Returns the length of the original media resource, which may differ
+	 * from the length of the embedded version.
+	 *
+	 * @return Original resource length.
+	 */
+	public int getOriginalResourceLength()
+	{
+		return _originalResourceLength;
+	}
+
+	@Override
+	public String toString()
+	{
+		return super.toString() + "[index=" + _index + ",title=" + _title + ",type=" + _type + ",contentPointer=" + _contentPointer + "]";
+	}
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io.ews;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Provides random access to the entries of a schedule file. The file is
+ * mapped into memory once and closed right away, so no file handle is kept
+ * open; only the header and entry table are read up front. Entries are
+ * decoded on demand and are not retained, so accessing a single entry of a
+ * large schedule takes constant time.
+ *
+ * <p>Like {@link EwsParser}, instances are not thread-safe.
+ *
+ * <p>Entries read from an instance share its mapping, which stays valid
+ * after it is closed. The file must therefore not be modified or truncated
+ * for as long as any of those entries are in use; see {@link
+ * EwsParser#parse(Path)}.
+ *
+ * @author Gerrit Meinders
+ */
+public class EwsFile
+	implements Closeable
+{
+	/**
+	 * Parser used to decode entries.
+	 */
+	private final EwsParser _parser;
+
+	/**
+	 * Parser used to determine the layout of entries, which skips all media.
+	 */
+	private final EwsParser _layoutParser;
+
+	/**
+	 * Entire file, mapped into memory.
+	 */
+	private final ByteBuffer _buffer;
+
+	private final ScheduleHeader _header;
+
+	/**
+	 * Records from the entry table.
+	 */
+	private final List<EntryRecord> _records;
+
+	/**
+	 * Loads deferred media from the mapped file.
+	 */
+	private final MediaLoader _loader;
+
+	/**
+	 * Shares identical media between entries, if enabled by the parser.
+	 */
+	private final MediaCache _cache;
+
+	/**
+	 * Opens the given schedule file, using a parser with default settings.
+	 * The file is mapped into memory and must not be modified while it or
+	 * any entries read from it are in use.
+	 *
+	 * @param file Schedule file.
+	 *
+	 * @return Opened schedule file.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static EwsFile open( final Path file )
+		throws IOException
+	{
+		return open( new EwsParser(), file );
+	}
+
+	/**
+	 * Opens the given schedule file. The file is mapped into memory and must
+	 * not be modified while it or any entries read from it are in use.
+	 *
+	 * @param parser Parser used to decode entries, which determines the
+	 *               character set and other options.
+	 * @param file   Schedule file.
+	 *
+	 * @return Opened schedule file.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static EwsFile open( final EwsParser parser, final Path file )
+		throws IOException
+	{
+		// The mapping remains valid after the channel is closed.
+		final ByteBuffer buffer;
+		try ( final FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) )
+		{
+			buffer = EwsParser.map( channel );
+		}
+		return new EwsFile( parser, buffer );
+	}
+
+	private EwsFile( final EwsParser parser, final ByteBuffer buffer )
+		throws IOException
+	{
+		_parser = parser;
+		_buffer = buffer;
+		_header = parser.parseHeader( _buffer.duplicate() );
+		_header.checkEntryTable( _buffer.limit() );
+		_records = Collections.unmodifiableList( parser.scanIndex( _buffer.duplicate() ) );
+		_loader = EwsParser.createBufferLoader( _buffer );
+		_cache = parser.createMediaCache();
+
+		final ParseOptions layoutOptions = new ParseOptions();
+		layoutOptions.setAllMedia( ParseOptions.MediaPolicy.SKIP );
+		_layoutParser = new EwsParser();
+		_layoutParser.setCharset( parser.getCharset() );
+		_layoutParser.setLazyTextContent( true );
+		_layoutParser.setOptions( layoutOptions );
+	}
+
+	/**
+	 * Returns the number of entries in the schedule.
+	 *
+	 * @return Number of entries.
+	 */
+	public int entryCount()
+	{
+		return _header.getEntryCount();
+	}
+
+	/**
+	 * Returns the record of the specified entry from the entry table. This
+	 * doesn't read any content.
+	 *
+	 * @param index Index of the entry.
+	 *
+	 * @return Entry record.
+	 */
+	public EntryRecord record( final int index )
+	{
+		return _records.get( index );
+	}
+
+	/**
+	 * Returns the records of all entries from the entry table.
+	 *
+	 * @return Entry records.
+	 */
+	public List<EntryRecord> records()
+	{
+		return _records;
+	}
+
+	/**
+	 * Decodes the specified entry, including its content.
+	 *
+	 * @param index Index of the entry.
+	 *
+	 * @return Schedule entry.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public ScheduleEntry entry( final int index )
+		throws IOException
+	{
+		checkIndex( index );
+		return _parser.parseEntry( _buffer.duplicate(), _header, index, _loader, _cache, null );
+	}
+
+	/**
+	 * Returns where the data of the specified entry is stored in the file.
+	 * Only the length prefixes of embedded media are read to determine this.
+	 *
+	 * @param index Index of the entry.
+	 *
+	 * @return Layout of the entry.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public EntryLayout layout( final int index )
+		throws IOException
+	{
+		checkIndex( index );
+		final EntryLayout result = new EntryLayout();
+		_layoutParser.parseEntry( _buffer.duplicate(), _header, index, _loader, null, result );
+		return result;
+	}
+
+	/**
+	 * Returns the size of the file.
+	 *
+	 * @return Size in bytes.
+	 */
+	public long size()
+	{
+		return _buffer.capacity();
+	}
+
+	private void checkIndex( final int index )
+	{
+		if ( index < 0 || index >= entryCount() )
+		{
+			throw new IndexOutOfBoundsException( "index: " + index + ", entryCount: " + entryCount() );
+		}
+	}
+
+	/**
+	 * Does nothing, since the file is closed as soon as it is mapped. The
+	 * mapping is released when it is no longer referenced, which includes
+	 * any entries read from this instance.
+	 */
+	@Override
+	public void close()
+		throws IOException
+	{
+	}
+}
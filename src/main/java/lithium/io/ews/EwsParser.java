@@ -16,17 +16,17 @@
  */
 package lithium.io.ews;
 
-import java.awt.*;
 import java.io.*;
 import java.nio.*;
+import java.nio.channels.*;
 import java.nio.charset.*;
+import java.nio.file.*;
 import java.util.List;
 import java.util.*;
-import java.util.zip.*;
+import java.util.concurrent.*;
 
 import lithium.io.*;
 import static lithium.io.ews.Tools.*;
-import lithium.io.rtf.*;
 
 /**
  * Reads schedules stored in the EWS file format.
@@ -39,6 +39,37 @@ public class EwsParser
 
 	private int _index = 1;
 
+	/**
+	 * Whether text content is decoded on demand, instead of while parsing.
+	 */
+	private boolean _lazyTextContent = false;
+
+	/**
+	 * Whether the checksum of text content is verified.
+	 */
+	private boolean _verifyChecksums = true;
+
+	/**
+	 * Receives warnings about recoverable problems.
+	 */
+	private ParseListener _parseListener = ParseListener.STANDARD_ERROR;
+
+	/**
+	 * Executor used to decode the content of entries in parallel, if any.
+	 */
+	private Executor _executor = null;
+
+	/**
+	 * Decodes the strings in the file header and entry table, which are always
+	 * read on the calling thread. Created on demand for the current charset.
+	 */
+	private CStringDecoder _stringDecoder = null;
+
+	/**
+	 * Specifies how embedded media is handled.
+	 */
+	private ParseOptions _options = new ParseOptions();
+
 	public EwsParser()
 	{
 	}
@@ -53,25 +84,574 @@ public class EwsParser
 		_charset = charset;
 	}
 
+	public Executor getExecutor()
+	{
+		return _executor;
+	}
+
+	/**
+	 * Sets an executor to decode the content of entries in parallel, e.g.
+	 * {@link ForkJoinPool#commonPool()}. The entry table is read first, after
+	 * which the content of each entry is decoded as a separate task. Entries
+	 * in the parsed schedule are always in their original order.
+	 *
+	 * @param executor Executor to be used; {@code null} to decode all content
+	 *                 on the calling thread.
+	 */
+	public void setExecutor( final Executor executor )
+	{
+		_executor = executor;
+	}
+
+	public boolean isVerifyChecksums()
+	{
+		return _verifyChecksums;
+	}
+
+	/**
+	 * Sets whether the Adler-32 checksum of text content is verified after
+	 * decompressing it. Verification is enabled by default, but may be
+	 * disabled for trusted input.
+	 *
+	 * @param verifyChecksums {@code true} to verify checksums.
+	 */
+	public void setVerifyChecksums( final boolean verifyChecksums )
+	{
+		_verifyChecksums = verifyChecksums;
+	}
+
+	public ParseListener getParseListener()
+	{
+		return _parseListener;
+	}
+
+	/**
+	 * Sets the listener that receives warnings about recoverable problems,
+	 * like checksum mismatches. By default, warnings are printed to {@link
+	 * System#err}. When parsing in parallel, the listener is called from
+	 * multiple threads.
+	 *
+	 * @param parseListener Listener to be set.
+	 *
+	 * @see ParseDiagnostics
+	 */
+	public void setParseListener( final ParseListener parseListener )
+	{
+		if ( parseListener == null )
+		{
+			throw new NullPointerException( "parseListener" );
+		}
+		_parseListener = parseListener;
+	}
+
+	/**
+	 * Reports a warning to the parse listener.
+	 */
+	private void warning( final ParseWarning.Kind kind, final long offset, final String message )
+	{
+		getParseListener().warning( new ParseWarning( kind, offset, message ) );
+	}
+
+	public ParseOptions getOptions()
+	{
+		return _options;
+	}
+
+	/**
+	 * Sets options that specify how embedded media, like videos and images,
+	 * is handled. By default, all media is loaded.
+	 *
+	 * @param options Options to be set.
+	 */
+	public void setOptions( final ParseOptions options )
+	{
+		if ( options == null )
+		{
+			throw new NullPointerException( "options" );
+		}
+		_options = options;
+	}
+
+	public boolean isLazyTextContent()
+	{
+		return _lazyTextContent;
+	}
+
+	/**
+	 * Sets whether text content (i.e. songs and scripture) is decoded on
+	 * demand. If set, text content is kept in compressed form until {@link
+	 * TextContent#getText()} is first called, which is considerably faster
+	 * when only the titles and other properties of entries are needed.
+	 *
+	 * @param lazyTextContent {@code true} to decode text content on demand.
+	 */
+	public void setLazyTextContent( final boolean lazyTextContent )
+	{
+		_lazyTextContent = lazyTextContent;
+	}
+
+	/**
+	 * Parses the schedule stored in the given file. The file is mapped into
+	 * memory, such that any embedded media are not copied onto the heap.
+	 *
+	 * <p><b>The file must not be modified while the schedule is in use.</b>
+	 * Binary content, and any raw entry data kept for {@link
+	 * ParseOptions#setKeepRawData}, are slices of the mapping rather than
+	 * copies. If the file is overwritten or truncated, they return corrupt
+	 * data, or the JVM may even crash with a bus error when they are read. In
+	 * particular, don't write the schedule back to the same file; write to a
+	 * temporary file and move it into place once writing is complete.
+	 *
+	 * @param file File to be parsed.
+	 *
+	 * @return Parsed schedule.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public Schedule parse( final Path file )
+		throws IOException
+	{
+		try ( final FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) )
+		{
+			return parse( map( channel ), createFileLoader( file ) );
+		}
+	}
+
+	/**
+	 * Parses the schedule stored in the file accessed by the given channel.
+	 * The file is mapped into memory, such that any embedded media are not
+	 * copied onto the heap. The mapping, and therefore any parsed binary
+	 * content, remains valid after the channel is closed.
+	 *
+	 * <p>As with {@link #parse(Path)}, the file must not be modified or
+	 * truncated while the schedule is in use, including by writing the
+	 * schedule back to it.
+	 *
+	 * @param channel Channel to read from.
+	 *
+	 * @return Parsed schedule.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public Schedule parse( final FileChannel channel )
+		throws IOException
+	{
+		final ByteBuffer buffer = map( channel );
+		return parse( buffer, createBufferLoader( buffer ) );
+	}
+
+	/**
+	 * Maps the entire file accessed by the given channel into memory.
+	 *
+	 * @param channel Channel to be mapped.
+	 *
+	 * @return Read-only buffer.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	static MappedByteBuffer map( final FileChannel channel )
+		throws IOException
+	{
+		final long size = channel.size();
+		if ( size > Integer.MAX_VALUE )
+		{
+			throw new IOException( "File is too large: " + size + " bytes" );
+		}
+
+		return channel.map( FileChannel.MapMode.READ_ONLY, 0, size );
+	}
+
+	/**
+	 * Parses the schedule stored in the given buffer. Binary content and any
+	 * other data kept from the buffer is copied, so the buffer may be reused
+	 * afterwards. Use {@link #parse(Path)} to refer to the media in a file
+	 * without copying them.
+	 *
+	 * @param buffer Buffer to read from.
+	 *
+	 * @return Parsed schedule.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
 	public Schedule parse( final ByteBuffer buffer )
 		throws IOException
+	{
+		return parse( buffer, createCopyingLoader( buffer ) );
+	}
+
+	private Schedule parse( final ByteBuffer buffer, final MediaLoader loader )
+		throws IOException
 	{
 		buffer.order( ByteOrder.LITTLE_ENDIAN );
 
-		parseHeader( buffer );
+		final ScheduleHeader header = parseHeader( buffer );
+		header.checkEntryTable( buffer.limit() );
+
+		return parseEntries( buffer, header, loader, createMediaCache() );
+	}
+
+	/**
+	 * Parses the schedule read from the given input stream. The stream is read
+	 * forward only, without copying the header and entry table, such that the
+	 * schedule ends up on the heap only once.
+	 *
+	 * @param in Stream to read from.
+	 *
+	 * @return Parsed schedule.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 * @see #parse(ReadableByteChannel)
+	 */
+	public Schedule parse( final InputStream in )
+		throws IOException
+	{
+		return parse( ChannelSource.forwardOnly( Channels.newChannel( in ) ) );
+	}
+
+	/**
+	 * Parses the schedule read from the given channel. The header and entry
+	 * table are read in bulk first. If the channel is seekable, the content
+	 * of each entry is then read separately, using the pointers in the entry
+	 * table. Otherwise, the remaining content is read into a single buffer.
+	 *
+	 * <p>Use {@link #parse(FileChannel)} to map a file into memory instead. A
+	 * {@link FileChannel} is always mapped, with the restrictions described
+	 * there.
+	 * When reading from a seekable channel with {@link
+	 * ParseOptions.MediaPolicy#DEFER}, deferred media is read from the channel
+	 * on demand, so it must remain open.
+	 *
+	 * @param channel Channel to read from.
+	 *
+	 * @return Parsed schedule.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public Schedule parse( final ReadableByteChannel channel )
+		throws IOException
+	{
+		if ( channel instanceof FileChannel )
+		{
+			return parse( (FileChannel)channel );
+		}
+
+		return parse( ChannelSource.of( channel ) );
+	}
+
+	private Schedule parse( final ChannelSource source )
+		throws IOException
+	{
+		final ScheduleHeader header = parseHeader( source.read( 0, ScheduleHeader.MAXIMUM_LENGTH ) );
+		header.checkEntryTable( source.size() );
+		final ByteBuffer entryTable = source.readFully( header.getEntryTableOffset(), header.getEntryTableLength() );
+		final List<EntryRecord> records = parseEntryRecords( entryTable, header );
+
+		final Executor executor = getExecutor();
+		final MediaCache cache = createMediaCache();
+		final List<CompletableFuture<ScheduleEntry>> futures = new ArrayList<CompletableFuture<ScheduleEntry>>( records.size() );
+		if ( source.isSeekable() )
+		{
+			final MediaLoader loader = source::readFully;
+			final long end = source.size();
+			final TreeSet<Integer> blockOffsets = getBlockOffsets( records );
+
+			for ( final EntryRecord record : records )
+			{
+				int start = record._contentPointer;
+				int last = record._contentPointer;
+				if ( record._mediaContentPointer > 0 )
+				{
+					start = Math.min( start, record._mediaContentPointer );
+					last = Math.max( last, record._mediaContentPointer );
+				}
+				final Integer next = blockOffsets.higher( last );
+				final long limit = ( next == null ) ? end : Math.min( next, end );
+				if ( start < 0 || limit < start )
+				{
+					throw new IOException( "Invalid content pointer for entry " + record._index + ": " + start );
+				}
+
+				final ByteBuffer buffer = source.readFully( start, (int)( limit - start ) );
+				futures.add( submitEntry( buffer, start, record, loader, cache, executor ) );
+			}
+		}
+		else
+		{
+			final int base = header.getEntryTableOffset() + header.getEntryTableLength();
+			final ByteBuffer buffer = source.readRemaining( base );
+			final MediaLoader loader = createBufferLoader( buffer, base );
+
+			for ( final EntryRecord record : records )
+			{
+				futures.add( submitEntry( buffer, base, record, loader, cache, executor ) );
+			}
+		}
+
+		return joinEntries( futures );
+	}
+
+	/**
+	 * Returns the offsets of all content and media blocks in the file. The
+	 * content of an entry ends where the next block starts.
+	 */
+	private static TreeSet<Integer> getBlockOffsets( final List<EntryRecord> records )
+	{
+		final TreeSet<Integer> result = new TreeSet<Integer>();
+		for ( final EntryRecord record : records )
+		{
+			result.add( record._contentPointer );
+			if ( record._mediaContentPointer > 0 )
+			{
+				result.add( record._mediaContentPointer );
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Parses the content of the entry described by the given record, either
+	 * immediately or using the given executor.
+	 */
+	private CompletableFuture<ScheduleEntry> submitEntry( final ByteBuffer buffer, final int base, final EntryRecord record, final MediaLoader loader, final MediaCache cache, final Executor executor )
+		throws IOException
+	{
+		final CompletableFuture<ScheduleEntry> result;
+		if ( executor == null )
+		{
+			result = CompletableFuture.completedFuture( parseEntry( buffer, base, record, loader, cache, null ) );
+		}
+		else
+		{
+			result = parseEntryAsync( buffer, base, record, loader, cache, executor );
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a cache to share identical media within a single schedule.
+	 *
+	 * @return Media cache; {@code null} if media is not deduplicated.
+	 */
+	MediaCache createMediaCache()
+	{
+		return _options.isDeduplicateMedia() ? new MediaCache() : null;
+	}
+
+	/**
+	 * Returns a loader for deferred media that reads from the given file,
+	 * which is opened for each request.
+	 *
+	 * @param file File to read from.
+	 *
+	 * @return Media loader.
+	 */
+	private static MediaLoader createFileLoader( final Path file )
+	{
+		return new MediaLoader()
+		{
+			@Override
+			public ByteBuffer load( final long offset, final int length )
+				throws IOException
+			{
+				try ( final FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) )
+				{
+					return read( channel, offset, length );
+				}
+			}
+
+			@Override
+			public void transferTo( final long offset, final int length, final WritableByteChannel target )
+				throws IOException
+			{
+				try ( final FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) )
+				{
+					long position = offset;
+					final long end = offset + length;
+					while ( position < end )
+					{
+						final long transferred = channel.transferTo( position, end - position, target );
+						if ( transferred <= 0 && position >= channel.size() )
+						{
+							throw new EOFException( "Unexpected end of file at " + position + ", expected media up to " + end );
+						}
+						position += transferred;
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns a loader for deferred media that slices the given buffer.
+	 *
+	 * @param buffer Buffer to read from.
+	 *
+	 * @return Media loader.
+	 */
+	static MediaLoader createBufferLoader( final ByteBuffer buffer )
+	{
+		return createBufferLoader( buffer, 0 );
+	}
+
+	/**
+	 * Returns a loader for deferred media that copies from the given buffer,
+	 * which is owned by the caller. Any other content is copied as well; see
+	 * {@link MediaLoader#isBufferShared()}.
+	 *
+	 * @param buffer Buffer to read from.
+	 *
+	 * @return Media loader.
+	 */
+	static MediaLoader createCopyingLoader( final ByteBuffer buffer )
+	{
+		final MediaLoader slices = createBufferLoader( buffer, 0 );
+		return new MediaLoader()
+		{
+			@Override
+			public ByteBuffer load( final long offset, final int length )
+				throws IOException
+			{
+				return copy( slices.load( offset, length ) );
+			}
+
+			@Override
+			public boolean isBufferShared()
+			{
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns a loader for deferred media that slices the given buffer, which
+	 * starts at the given offset in the file.
+	 *
+	 * @param buffer Buffer to read from.
+	 * @param base   Offset of the buffer in the file.
+	 *
+	 * @return Media loader.
+	 */
+	private static MediaLoader createBufferLoader( final ByteBuffer buffer, final long base )
+	{
+		final ByteBuffer source = buffer.duplicate();
+		return ( offset, length ) -> {
+			final ByteBuffer result = source.duplicate();
+			result.clear();
+			result.position( (int)( offset - base ) );
+			result.limit( (int)( offset - base ) + length );
+			return result.slice();
+		};
+	}
+
+	/**
+	 * Reads only the header and entry table of the schedule stored in the
+	 * given file. The content of the entries is never read, which makes this
+	 * much faster than parsing the entire schedule when only properties like
+	 * titles and authors are needed.
+	 *
+	 * @param file File to be scanned.
+	 *
+	 * @return Records from the entry table.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public List<EntryRecord> scanIndex( final Path file )
+		throws IOException
+	{
+		try ( final FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) )
+		{
+			return scanIndex( channel );
+		}
+	}
+
+	/**
+	 * Reads only the header and entry table of the schedule stored in the
+	 * file accessed by the given channel.
+	 *
+	 * @param channel Channel to read from.
+	 *
+	 * @return Records from the entry table.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 * @see #scanIndex(Path)
+	 */
+	public List<EntryRecord> scanIndex( final FileChannel channel )
+		throws IOException
+	{
+		final ByteBuffer headerBuffer = read( channel, 0, (int)Math.min( channel.size(), ScheduleHeader.MAXIMUM_LENGTH ) );
+		final ScheduleHeader header = parseHeader( headerBuffer );
+		header.checkEntryTable( channel.size() );
+		final ByteBuffer entryTable = read( channel, header.getEntryTableOffset(), header.getEntryTableLength() );
+		return parseEntryRecords( entryTable, header );
+	}
+
+	/**
+	 * Reads only the header and entry table of the schedule stored in the
+	 * given buffer.
+	 *
+	 * @param buffer Buffer to read from.
+	 *
+	 * @return Records from the entry table.
+	 *
+	 * @throws IllegalArgumentException if the buffer doesn't contain a valid
+	 * header and entry table.
+	 * @see #scanIndex(Path)
+	 */
+	public List<EntryRecord> scanIndex( final ByteBuffer buffer )
+	{
+		buffer.order( ByteOrder.LITTLE_ENDIAN );
+		final ScheduleHeader header = parseHeader( buffer );
+		header.checkEntryTable( buffer.limit() );
+		return parseEntryRecords( buffer, header );
+	}
 
-		return parseEntries( buffer );
+	/**
+	 * Reads the specified number of bytes from the given channel.
+	 *
+	 * @param channel  Channel to read from.
+	 * @param position Position to start reading at.
+	 * @param length   Number of bytes to read.
+	 *
+	 * @return Buffer containing the bytes that were read.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	private static ByteBuffer read( final FileChannel channel, final long position, final int length )
+		throws IOException
+	{
+		final ByteBuffer result = ByteBuffer.allocate( length );
+		while ( result.hasRemaining() )
+		{
+			if ( channel.read( result, position + result.position() ) == -1 )
+			{
+				throw new EOFException( "Expected " + length + " bytes at " + position + ", but was only " + result.position() );
+			}
+		}
+		result.flip();
+		result.order( ByteOrder.LITTLE_ENDIAN );
+		return result;
 	}
 
-	private void parseHeader( final ByteBuffer buffer )
+	/**
+	 * Parses the header of the schedule stored in the given buffer, which
+	 * must be positioned at the start of the file. Afterwards, the buffer is
+	 * positioned at the start of the entry table.
+	 *
+	 * @param buffer Buffer to read from.
+	 *
+	 * @return Schedule header.
+	 */
+	ScheduleHeader parseHeader( final ByteBuffer buffer )
 	{
-		final String formatIdentifier = parsePaddedCString( buffer, 34, getCharset() );
+		buffer.order( ByteOrder.LITTLE_ENDIAN );
+
+		final String formatIdentifier = parseString( buffer, 34 );
 		if ( !formatIdentifier.startsWith( "EasyWorship Schedule File" ) )
 		{
 			throw new IllegalArgumentException( "Not an EasyWorship schedule file." );
 		}
 
-		final String versionString = parsePaddedCString( buffer, 5, getCharset() ).trim();
+		final String versionString = parseString( buffer, 5 ).trim();
 
 		if ( "5".equals( versionString ) )
 		{
@@ -89,67 +669,199 @@ public class EwsParser
 		{
 			throw new IllegalArgumentException( "Unsupported version: '" + versionString + "'" );
 		}
+
+		final int playlistEntryCount = buffer.getInt();
+		final int playlistEntryLength = (int)buffer.getShort();
+		return new ScheduleHeader( versionString, playlistEntryCount, playlistEntryLength, buffer.position() );
 	}
 
-	private Schedule parseEntries( final ByteBuffer buffer )
+	private Schedule parseEntries( final ByteBuffer buffer, final ScheduleHeader header, final MediaLoader loader, final MediaCache cache )
 	throws IOException
 	{
-		final int playlistEntryCount = buffer.getInt();
-		final int playlistEntryLength = (int)buffer.getShort();
+		final Executor executor = getExecutor();
+		if ( executor != null )
+		{
+			return parseEntriesInParallel( buffer, header, loader, cache, executor );
+		}
 
 		final Schedule playlist = new Schedule();
 		final List<ScheduleEntry> playlistEntries = playlist.getEntries();
 
-		for ( int i = 0; i < playlistEntryCount; i++ )
+		for ( int i = 0; i < header.getEntryCount(); i++ )
 		{
-			final ScheduleEntry entry = parsePlaylistEntry( buffer, playlistEntryLength );
+			final ScheduleEntry entry = parsePlaylistEntry( buffer, header, i, loader, cache );
 			playlistEntries.add( entry );
 		}
 
 		return playlist;
 	}
 
-	private ScheduleEntry parsePlaylistEntry( final ByteBuffer buffer, final int size )
+	private Schedule parseEntriesInParallel( final ByteBuffer buffer, final ScheduleHeader header, final MediaLoader loader, final MediaCache cache, final Executor executor )
+	throws IOException
+	{
+		final List<EntryRecord> records = parseEntryRecords( buffer, header );
+
+		final List<CompletableFuture<ScheduleEntry>> futures = new ArrayList<CompletableFuture<ScheduleEntry>>( records.size() );
+		for ( final EntryRecord record : records )
+		{
+			futures.add( parseEntryAsync( buffer, 0, record, loader, cache, executor ) );
+		}
+		return joinEntries( futures );
+	}
+
+	/**
+	 * Parses the content of the entry described by the given record, using
+	 * the given executor.
+	 */
+	private CompletableFuture<ScheduleEntry> parseEntryAsync( final ByteBuffer buffer, final int base, final EntryRecord record, final MediaLoader loader, final MediaCache cache, final Executor executor )
+	{
+		return CompletableFuture.supplyAsync( () -> {
+			final ByteBuffer entryBuffer = buffer.duplicate();
+			entryBuffer.order( ByteOrder.LITTLE_ENDIAN );
+			try
+			{
+				return parseEntry( entryBuffer, base, record, loader, cache, null );
+			}
+			catch ( final IOException e )
+			{
+				throw new CompletionException( e );
+			}
+		}, executor );
+	}
+
+	/**
+	 * Waits for the given entries to be parsed, in order.
+	 */
+	private static Schedule joinEntries( final List<CompletableFuture<ScheduleEntry>> futures )
+	throws IOException
+	{
+		final Schedule playlist = new Schedule();
+		final List<ScheduleEntry> playlistEntries = playlist.getEntries();
+		try
+		{
+			for ( final CompletableFuture<ScheduleEntry> future : futures )
+			{
+				playlistEntries.add( future.join() );
+			}
+		}
+		catch ( final CompletionException e )
+		{
+			final Throwable cause = e.getCause();
+			if ( cause instanceof IOException )
+			{
+				throw (IOException)cause;
+			}
+			else if ( cause instanceof RuntimeException )
+			{
+				throw (RuntimeException)cause;
+			}
+			else if ( cause instanceof Error )
+			{
+				throw (Error)cause;
+			}
+			throw e;
+		}
+
+		return playlist;
+	}
+
+	/**
+	 * Parses the entry table. The given buffer must be positioned at the start
+	 * of the table.
+	 */
+	private List<EntryRecord> parseEntryRecords( final ByteBuffer buffer, final ScheduleHeader header )
+	{
+		final List<EntryRecord> result = new ArrayList<EntryRecord>( header.getEntryCount() );
+		for ( int i = 0; i < header.getEntryCount(); i++ )
+		{
+			result.add( parseEntryRecord( buffer, header, i ) );
+		}
+		return result;
+	}
+
+	private ScheduleEntry parsePlaylistEntry( final ByteBuffer buffer, final ScheduleHeader header, final int index, final MediaLoader loader, final MediaCache cache )
+		throws IOException
+	{
+		final int start = buffer.position();
+		final EntryRecord record = parseEntryRecord( buffer, header, index );
+		final ScheduleEntry result = parseEntry( buffer, 0, record, loader, cache, null );
+		buffer.position( start + header.getEntryLength() );
+		return result;
+	}
+
+	/**
+	 * Parses the specified entry, including its content.
+	 *
+	 * @param buffer Buffer to read from, which is positioned arbitrarily
+	 *               afterwards.
+	 * @param header Schedule header.
+	 * @param index  Index of the entry.
+	 * @param loader Loader for deferred media.
+	 * @param layout Layout to store the location of each block in; {@code
+	 *               null} if not needed.
+	 *
+	 * @return Schedule entry.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	ScheduleEntry parseEntry( final ByteBuffer buffer, final ScheduleHeader header, final int index, final MediaLoader loader, final MediaCache cache, final EntryLayout layout )
 		throws IOException
 	{
+		buffer.order( ByteOrder.LITTLE_ENDIAN );
+		buffer.position( header.getEntryOffset( index ) );
+		return parseEntry( buffer, 0, parseEntryRecord( buffer, header, index ), loader, cache, layout );
+	}
+
+	/**
+	 * Parses the entry record at the current position of the given buffer.
+	 * Afterwards, the buffer is positioned at the start of the next record.
+	 */
+	EntryRecord parseEntryRecord( final ByteBuffer buffer, final ScheduleHeader header, final int index )
+	{
+		final int size = header.getEntryLength();
 		final int start = buffer.position();
 
-		final String title = parsePaddedCString( buffer, 51, getCharset() );
-		final String mediaResource = parsePaddedCString( buffer, 256, getCharset() );
-		final String author = parsePaddedCString( buffer, 51, getCharset() );
-		final String copyright = parsePaddedCString( buffer, 101, getCharset() );
-		final String administrator = parsePaddedCString( buffer, 51, getCharset() );
+		final EntryRecord record = new EntryRecord();
+		record._index = index;
+		record._recordOffset = header.getEntryOffset( index );
+		record._recordLength = size;
+
+		record._title = parseString( buffer, 51 );
+		record._mediaResource = parseString( buffer, 256 );
+		record._author = parseString( buffer, 51 );
+		record._copyright = parseString( buffer, 101 );
+		record._administrator = parseString( buffer, 51 );
 
 //		System.out.println( "Background (510..535), containing unknowns (510, 530..535)" );
 //		dump( buffer, 26 );
 		skip( buffer, 1 );
-		final boolean defaultBackground = ( buffer.get() != 0 );
-		final ScheduleEntry.BackgroundType backgroundType = parseBackgroundType( buffer.getInt() );
-		final Color backgroundColor = parseColor( buffer );
-		final Color gradientColor1 = parseColor( buffer );
-		final Color gradientColor2 = parseColor( buffer );
-		final ScheduleEntry.GradientStyle gradientStyle = parseGradientStyle( buffer.get() );
-		final ScheduleEntry.GradientVariant gradientVariant = parseGradientVariant( buffer.get() );
+		record._defaultBackground = ( buffer.get() != 0 );
+		record._backgroundType = parseBackgroundType( buffer.getInt() );
+		record._backgroundColor = buffer.getInt();
+		record._gradientColor1 = buffer.getInt();
+		record._gradientColor2 = buffer.getInt();
+		record._gradientStyle = parseGradientStyle( buffer.get() );
+		record._gradientVariant = parseGradientVariant( buffer.get() );
 		skip( buffer, 6 );
 
-		final String backgroundName = parsePaddedCString( buffer, 256, getCharset() );
+		record._backgroundName = parseString( buffer, 256 );
 
-		final Date timestamp = parseTimestamp( buffer );
+		record._timestamp = parseTimestamp( buffer );
 
-		final int contentPointer = buffer.getInt();
+		record._contentPointer = buffer.getInt();
 
 //		System.out.println( "Unknown (804)" );
 //		dump( buffer, 16 );
 		skip( buffer, 16 );
 
-		final ScheduleEntry.Type type = parseScheduleEntryType( buffer );
+		record._type = parseScheduleEntryType( buffer );
 
 //		System.out.println( "Unknown (824)" );
 //		dump( buffer, 16 );
 //		skip( buffer, 16 );
 		skip( buffer, 12 );
 		boolean isPresentation = buffer.getInt() != 0;
-		final int presentationLength = buffer.getInt();
+		record._presentationLength = buffer.getInt();
 
 //		System.out.println( "Font settings (844..851), containing unknowns (846..847)" );
 //		dump( buffer, 8 );
@@ -157,25 +869,19 @@ public class EwsParser
 		final boolean fontSizeAutomatic = ( buffer.get() != 0 );
 		skip( buffer, 2 );
 
-		String notes = null;
-		String songNumber = null;
-		int mediaContentPointer = 0;
-		ScheduleEntry.AspectRatio aspectRatio = null;
-		int originalResourceLength = 0;
-
 		if ( size > 848 )
 		{
 			final int fontSize = buffer.getInt();
 
 			final boolean useDefaultFont = ( buffer.get() != 0 );
-			final String fontName = parsePaddedCString( buffer, 255, getCharset() );
+			final String fontName = parseString( buffer, 255 );
 
 			final boolean foregroundAutomatic = buffer.getInt() == 1;
-			final Color foregroundColor = parseColor( buffer );
+			final int foregroundColor = buffer.getInt();
 			final boolean shadowAutomatic = buffer.getInt() == 1;
-			final Color shadowColor = parseColor( buffer );
+			final int shadowColor = buffer.getInt();
 			final boolean outlineAutomatic = buffer.getInt() == 1;
-			final Color outlineColor = parseColor( buffer );
+			final int outlineColor = buffer.getInt();
 
 			final Boolean shadowEnabled = parseTristate( buffer.get() );
 			final Boolean outlineEnabled = parseTristate( buffer.get() );
@@ -190,74 +896,117 @@ public class EwsParser
 			final int textMarginRight = buffer.getInt();
 			final int textMarginBottom = buffer.getInt();
 
-			notes = parsePaddedCString( buffer, 161, getCharset() );
+			record._notes = parseString( buffer, 161 );
 //			System.out.println( "Unknown (1316)" );
 //			dump( buffer, 94 );
 			skip( buffer, 94 );
-			songNumber = parsePaddedCString( buffer, 11, getCharset() );
+			record._songNumber = parseString( buffer, 11 );
 
 //			System.out.println( "Unknown (1421)" );
 //			dump( buffer, 59 );
 			skip( buffer, 59 );
 
-			originalResourceLength = buffer.getInt();
+			record._originalResourceLength = buffer.getInt();
 //			System.out.println( "Unknown (1484)" );
 //			dump( buffer, 12 );
 			skip( buffer, 12 );
-			mediaContentPointer = buffer.getInt();
+			record._mediaContentPointer = buffer.getInt();
 //			System.out.println( "Unknown (1500)" );
 //			dump( buffer, 20 );
 			skip( buffer, 20 );
 
-			aspectRatio = parseAspectRatio( buffer.getInt() );
+			record._aspectRatio = parseAspectRatio( record._recordOffset + buffer.position() - start, buffer.getInt() );
 
 //			System.out.println( "Unknown (1524)" );
 //			dump( buffer, 292 );
 			skip( buffer, 292 );
 		}
 
+		buffer.position( start + size );
+
+		if ( getOptions().isKeepRawData() && ( size == EwsWriter.SCHEDULE_ENTRY_LENGTH ) )
+		{
+			final ByteBuffer raw = buffer.duplicate();
+			raw.position( start );
+			record._raw = raw.slice().asReadOnlyBuffer();
+		}
+
+		return record;
+	}
+
+	/**
+	 * Parses the content of the entry described by the given record. The
+	 * position of the buffer is changed arbitrarily.
+	 *
+	 * @param buffer Buffer containing the content of the entry.
+	 * @param base   Offset of the buffer in the file.
+	 * @param record Entry record.
+	 * @param loader Loader for deferred media.
+	 * @param layout Layout to store the location of each block in; {@code
+	 *               null} if not needed.
+	 */
+	private ScheduleEntry parseEntry( final ByteBuffer buffer, final int base, final EntryRecord record, final MediaLoader loader, final MediaCache cache, final EntryLayout layout )
+		throws IOException
+	{
+		final ScheduleEntry.Type type = record._type;
+		final ParseOptions options = getOptions();
+		final String backgroundName = record._backgroundName;
+		final ScheduleEntry.BackgroundType backgroundType = record._backgroundType;
+		final int mediaContentPointer = record._mediaContentPointer;
+
 		final ScheduleEntry result = new ScheduleEntry();
-		result.setTitle( title );
-		if ( !mediaResource.isEmpty() )
+		result.setTitle( record._title );
+		if ( !record._mediaResource.isEmpty() )
 		{
-			result.setMediaResource( mediaResource );
+			result.setMediaResource( record._mediaResource );
 		}
-		if ( !author.isEmpty() )
+		if ( !record._author.isEmpty() )
 		{
-			result.setAuthor( author );
+			result.setAuthor( record._author );
 		}
-		if ( !copyright.isEmpty() )
+		if ( !record._copyright.isEmpty() )
 		{
-			result.setCopyright( copyright );
+			result.setCopyright( record._copyright );
 		}
-		if ( !administrator.isEmpty() )
+		if ( !record._administrator.isEmpty() )
 		{
-			result.setAdministrator( administrator );
+			result.setAdministrator( record._administrator );
 		}
-		result.setTimestamp( timestamp );
+		result.setLocalTimestamp( record._timestamp );
 		result.setType( type );
-		result.setNotes( notes );
-		result.setSongNumber( songNumber );
+		result.setNotes( record._notes );
+		result.setSongNumber( record._songNumber );
 
-		buffer.position( contentPointer );
+		final EntryLayout entryLayout = ( ( layout == null ) && ( record._raw != null ) ) ? new EntryLayout() : layout;
+		if ( entryLayout != null )
+		{
+			entryLayout.setRecord( new EntryLayout.Region( record._recordOffset, record._recordLength ) );
+		}
+
+		buffer.position( record._contentPointer - base );
+		final int contentStart = base + buffer.position();
 
 		if ( ( type == ScheduleEntry.Type.SONG ) ||
 		     ( type == ScheduleEntry.Type.SCRIPTURE ) )
 		{
-			final TextContent content = parseDeflatedTextContent( buffer );
+			final TextContent content = parseDeflatedTextContent( buffer, base, loader.isBufferShared() );
 			result.setContent( content );
 		}
 		else if ( type == ScheduleEntry.Type.VIDEO )
 		{
-			final BinaryContent content = parseBinaryContent( ScheduleEntry.Type.IMAGE, buffer );
+			final BinaryContent content = parseBinaryContent( ScheduleEntry.Type.IMAGE, buffer, base, options.getThumbnail(), loader, cache );
 			result.setThumbnailImage( content );
 
 			if ( mediaContentPointer > 0 )
 			{
 				final int position = buffer.position();
-				buffer.position( mediaContentPointer );
-				final BinaryContent mediaContent = parseBinaryContent( type, buffer );
+				buffer.position( mediaContentPointer - base );
+				final BinaryContent mediaContent = parseBinaryContent( type, buffer, base, options.getContent(), loader, cache );
 				result.setContent( mediaContent );
+				if ( entryLayout != null )
+				{
+					entryLayout.setMedia( EntryLayout.Region.of( mediaContentPointer, base + buffer.position() ) );
+				}
 				buffer.position( position );
 			}
 		}
@@ -267,11 +1016,17 @@ public class EwsParser
 		          ( type == ScheduleEntry.Type.AUDIO ) ||
 		          ( type == ScheduleEntry.Type.WEB ) )
 		{
-			final BinaryContent content = parseBinaryContent( type, buffer );
+			final BinaryContent content = parseBinaryContent( type, buffer, base, options.getContent(), loader, cache );
 			result.setContent( content );
 		}
 
-		if ( !defaultBackground )
+		final int backgroundStart = base + buffer.position();
+		if ( entryLayout != null )
+		{
+			entryLayout.setContent( EntryLayout.Region.of( contentStart, backgroundStart ) );
+		}
+
+		if ( !record._defaultBackground )
 		{
 			final Background background;
 
@@ -279,16 +1034,16 @@ public class EwsParser
 			{
 				final ColorBackground colorBackground = new ColorBackground();
 				background = colorBackground;
-				colorBackground.setColor( backgroundColor );
+				colorBackground.setRgbColor( RgbColor.fromBgr( record._backgroundColor ) );
 			}
 			else if ( backgroundType == ScheduleEntry.BackgroundType.GRADIENT )
 			{
 				final GradientBackground gradientBackground = new GradientBackground();
 				background = gradientBackground;
-				gradientBackground.setColor1( gradientColor1 );
-				gradientBackground.setColor2( gradientColor2 );
-				gradientBackground.setStyle( gradientStyle );
-				gradientBackground.setVariant( gradientVariant );
+				gradientBackground.setRgbColor1( RgbColor.fromBgr( record._gradientColor1 ) );
+				gradientBackground.setRgbColor2( RgbColor.fromBgr( record._gradientColor2 ) );
+				gradientBackground.setStyle( record._gradientStyle );
+				gradientBackground.setVariant( record._gradientVariant );
 			}
 			else if ( backgroundType == ScheduleEntry.BackgroundType.IMAGE_TILED || backgroundType == ScheduleEntry.BackgroundType.IMAGE_SCALED )
 			{
@@ -298,7 +1053,7 @@ public class EwsParser
 
 				if ( !backgroundName.isEmpty() )
 				{
-					final BinaryContent backgroundImage = parseBinaryContent( ScheduleEntry.Type.IMAGE, buffer );
+					final BinaryContent backgroundImage = parseBinaryContent( ScheduleEntry.Type.IMAGE, buffer, base, options.getBackgroundImage(), loader, cache );
 					imageBackground.setImage( backgroundImage );
 				}
 
@@ -306,7 +1061,7 @@ public class EwsParser
 
 				if ( backgroundType == ScheduleEntry.BackgroundType.IMAGE_SCALED )
 				{
-					imageBackground.setAspectRatio( aspectRatio );
+					imageBackground.setAspectRatio( record._aspectRatio );
 				}
 			}
 			else if ( backgroundType == ScheduleEntry.BackgroundType.VIDEO )
@@ -317,15 +1072,19 @@ public class EwsParser
 
 				if ( !backgroundName.isEmpty() )
 				{
-					final BinaryContent previewImage = parseBinaryContent( ScheduleEntry.Type.IMAGE, buffer );
+					final BinaryContent previewImage = parseBinaryContent( ScheduleEntry.Type.IMAGE, buffer, base, options.getThumbnail(), loader, cache );
 					videoBackground.setImage( previewImage );
 
 					if ( mediaContentPointer > 0 )
 					{
 						final int position = buffer.position();
-						buffer.position( mediaContentPointer );
-						final BinaryContent video = parseBinaryContent( ScheduleEntry.Type.VIDEO, buffer );
+						buffer.position( mediaContentPointer - base );
+						final BinaryContent video = parseBinaryContent( ScheduleEntry.Type.VIDEO, buffer, base, options.getBackgroundVideo(), loader, cache );
 						videoBackground.setVideo( video );
+						if ( entryLayout != null )
+						{
+							entryLayout.setMedia( EntryLayout.Region.of( mediaContentPointer, base + buffer.position() ) );
+						}
 						buffer.position( position );
 					}
 				}
@@ -345,30 +1104,94 @@ public class EwsParser
 			result.setBackground( background );
 		}
 
-		if ( originalResourceLength > 0 )
+		if ( entryLayout != null )
 		{
-			if ( presentationLength > 0 )
+			entryLayout.setBackground( EntryLayout.Region.of( backgroundStart, base + buffer.position() ) );
+		}
+
+		if ( record._originalResourceLength > 0 )
+		{
+			if ( record._presentationLength > 0 )
 			{
+				final int presentationOffset = base + buffer.position();
 				final ByteBuffer presentationBuffer = buffer.slice();
 				presentationBuffer.order( ByteOrder.LITTLE_ENDIAN );
-				presentationBuffer.limit( presentationLength );
-				final Presentation presentation = parsePresentation( presentationBuffer );
+				presentationBuffer.limit( record._presentationLength );
+				final Presentation presentation = parsePresentation( presentationBuffer, presentationOffset, options.getSlides(), loader );
 				result.setPresentation( presentation );
+				if ( entryLayout != null )
+				{
+					entryLayout.setPresentation( new EntryLayout.Region( presentationOffset, record._presentationLength ) );
+				}
 			}
 		}
 
-		buffer.position( start + size );
+		if ( record._raw != null )
+		{
+			result.setRaw( createRawEntry( buffer, base, record, entryLayout, loader.isBufferShared() ) );
+		}
+
 		return result;
 	}
 
-	private Presentation parsePresentation( final ByteBuffer buffer )
+	/**
+	 * Returns the original data of the entry described by the given record
+	 * and layout, provided that its content is stored contiguously.
+	 *
+	 * @return Original data; {@code null} if the content isn't contiguous.
+	 */
+	private RawEntry createRawEntry( final ByteBuffer buffer, final int base, final EntryRecord record, final EntryLayout layout, final boolean shared )
+	{
+		final int start = record._contentPointer;
+		long end = start;
+		long length = 0;
+		for ( final EntryLayout.Region region : Arrays.asList( layout.getContent(), layout.getBackground(), layout.getMedia(), layout.getPresentation() ) )
+		{
+			if ( region != null )
+			{
+				if ( region.getOffset() < start )
+				{
+					return null;
+				}
+				end = Math.max( end, region.getEnd() );
+				length += region.getLength();
+			}
+		}
+
+		// Blocks must neither overlap nor leave gaps, which could contain data of other entries.
+		if ( length != end - start )
+		{
+			return null;
+		}
+
+		final int mediaContentPointer = record._mediaContentPointer;
+		if ( mediaContentPointer > 0 && ( mediaContentPointer < start || mediaContentPointer > end ) )
+		{
+			return null;
+		}
+
+		final ByteBuffer content = buffer.duplicate();
+		content.limit( (int)( end - base ) );
+		content.position( start - base );
+		if ( shared )
+		{
+			return new RawEntry( record._raw, content.slice().asReadOnlyBuffer(), start, record._mediaContentPointer, getCharset() );
+		}
+		return new RawEntry( copy( record._raw ).asReadOnlyBuffer(), copy( content ).asReadOnlyBuffer(), start, record._mediaContentPointer, getCharset() );
+	}
+
+	/**
+	 * Parses a presentation from the given buffer, which contains only the
+	 * presentation and starts at the given offset in the file.
+	 */
+	private Presentation parsePresentation( final ByteBuffer buffer, final int offset, final ParseOptions.MediaPolicy slidePolicy, final MediaLoader loader )
 	{
 		final int headerLength = buffer.getInt();
 
 		final String identifier = parsePaddedCString( buffer, 16, getCharset() );
 		if ( !"$ezwppstream$".equals( identifier ) )
 		{
-			System.err.println( "Unexpected value in presentation content: " + identifier );
+			warning( ParseWarning.Kind.UNEXPECTED_PRESENTATION_IDENTIFIER, offset + 4, "Unexpected value in presentation content: " + identifier );
 		}
 
 		buffer.getInt();    // Skip; = 0x02
@@ -383,17 +1206,38 @@ public class EwsParser
 		presentation.setMagicValue( magicValue );
 		presentation.setUnknown( unknown );
 
+		// Slides are decoded on demand, using the table that follows.
 		final int slideCount = buffer.getInt();
-		for ( int slideIndex = 0; slideIndex < slideCount; slideIndex++ )
+		final ByteBuffer slideTable = buffer.duplicate();
+		slideTable.order( ByteOrder.LITTLE_ENDIAN );
+		final int slideTableOffset = slideTable.position();
+		if ( slideCount < 0 || slideCount > slideTable.remaining() / 16 )
 		{
-			final Slide slide = parseSlide( buffer );
-			presentation.addSlide( slide );
+			throw new IllegalArgumentException( "slideCount: " + slideCount );
 		}
 
+		presentation.setSlideDecoder( new Presentation.SlideDecoder()
+		{
+			@Override
+			public int getSlideCount()
+			{
+				return slideCount;
+			}
+
+			@Override
+			public Slide decode( final int index )
+			{
+				final ByteBuffer slideBuffer = slideTable.duplicate();
+				slideBuffer.order( ByteOrder.LITTLE_ENDIAN );
+				slideBuffer.position( slideTableOffset + index * 16 );
+				return parseSlide( slideBuffer, offset, slidePolicy, loader );
+			}
+		} );
+
 		return presentation;
 	}
 
-	private Slide parseSlide( final ByteBuffer buffer )
+	private Slide parseSlide( final ByteBuffer buffer, final int offset, final ParseOptions.MediaPolicy policy, final MediaLoader loader )
 	{
 		final int contentPointer = buffer.getInt();
 
@@ -406,14 +1250,13 @@ public class EwsParser
 		buffer.get(); // 1
 
 		final int contentLength = buffer.getInt();
-		final byte[] content = new byte[ contentLength ];
-		buffer.get( content );
+		final BinaryContent content = parseMedia( buffer, contentLength, offset, policy, loader );
 
 		buffer.position( position );
 
 		final Slide slide = new Slide();
 		slide.setUnknown( slideUnknown );
-		slide.setContent( content );
+		slide.setBinaryContent( content );
 		return slide;
 	}
 
@@ -450,7 +1293,7 @@ public class EwsParser
 		return result;
 	}
 
-	private BinaryContent parseBinaryContent( final ScheduleEntry.Type type, final ByteBuffer buffer )
+	private BinaryContent parseBinaryContent( final ScheduleEntry.Type type, final ByteBuffer buffer, final int base, final ParseOptions.MediaPolicy policy, final MediaLoader loader, final MediaCache cache )
 	{
 		final BinaryContent result = new BinaryContent();
 
@@ -469,7 +1312,7 @@ public class EwsParser
 			final int unknown = buffer.getInt();
 			if ( unknown != 0 )
 			{
-				System.err.println( "Unexpected embedded video content. Expected 0, but was " + unknown );
+				warning( ParseWarning.Kind.UNEXPECTED_MEDIA_HEADER, base + buffer.position() - 4, "Unexpected embedded video content. Expected 0, but was " + unknown );
 
 				result.setPrecededByZeros( false );
 
@@ -482,15 +1325,76 @@ public class EwsParser
 			}
 		}
 
-		// Uncompressed content.
-		final byte[] content = new byte[ contentLength ];
-		buffer.get( content );
+		if ( cache != null )
+		{
+			final BinaryContent cached = cache.get( policy, (long)base + buffer.position() );
+			if ( cached != null && cached.getLength() == contentLength )
+			{
+				skip( buffer, contentLength );
+				return cached;
+			}
+		}
+
+		parseMedia( result, buffer, contentLength, base, policy, loader );
+		return ( cache == null ) ? result : cache.share( policy, result );
+	}
 
-		result.setBytes( content );
+	private BinaryContent parseMedia( final ByteBuffer buffer, final int length, final int offset, final ParseOptions.MediaPolicy policy, final MediaLoader loader )
+	{
+		final BinaryContent result = new BinaryContent();
+		parseMedia( result, buffer, length, offset, policy, loader );
 		return result;
 	}
 
-	private TextContent parseDeflatedTextContent( final ByteBuffer buffer )
+	/**
+	 * Reads uncompressed media of the given length at the current position,
+	 * according to the given policy.
+	 *
+	 * @param result Binary content to store the media in.
+	 * @param buffer Buffer to read from.
+	 * @param length Length of the media.
+	 * @param offset Offset of the buffer in the file.
+	 * @param policy Policy for the media.
+	 * @param loader Loader for deferred media.
+	 */
+	private void parseMedia( final BinaryContent result, final ByteBuffer buffer, final int length, final int offset, final ParseOptions.MediaPolicy policy, final MediaLoader loader )
+	{
+		if ( length < 0 )
+		{
+			throw new IllegalArgumentException( "length: " + length );
+		}
+		if ( length > buffer.remaining() )
+		{
+			throw new BufferUnderflowException();
+		}
+
+		final long mediaOffset = (long)offset + buffer.position();
+		if ( policy == ParseOptions.MediaPolicy.LOAD )
+		{
+			final ByteBuffer content = buffer.slice();
+			content.limit( length );
+			if ( loader.isBufferShared() )
+			{
+				// Refers to the original buffer.
+				result.setBuffer( content );
+			}
+			else
+			{
+				final byte[] bytes = new byte[ length ];
+				content.get( bytes );
+				result.setBytes( bytes );
+			}
+			result.setOffset( mediaOffset );
+		}
+		else
+		{
+			result.setSource( mediaOffset, length, ( policy == ParseOptions.MediaPolicy.DEFER ) ? loader : null );
+		}
+
+		skip( buffer, length );
+	}
+
+	private TextContent parseDeflatedTextContent( final ByteBuffer buffer, final int base, final boolean shared )
 		throws IOException
 	{
 		final int contentLength = buffer.getInt();
@@ -499,8 +1403,15 @@ public class EwsParser
 			throw new IllegalArgumentException( "contentLength: " + contentLength );
 		}
 
-		final byte[] compressedContent = new byte[ contentLength - 10 ];
-		buffer.get( compressedContent );
+		// Compressed content, including checksum; refers to the original buffer, if shared.
+		final int compressedOffset = base + buffer.position();
+		ByteBuffer compressedContent = buffer.slice();
+		compressedContent.limit( contentLength - 10 );
+		if ( !shared && isLazyTextContent() )
+		{
+			compressedContent = copy( compressedContent );
+		}
+		skip( buffer, contentLength - 10 );
 
 		buffer.order( ByteOrder.BIG_ENDIAN );
 		buffer.position( buffer.position() - 4 );
@@ -517,29 +1428,15 @@ public class EwsParser
 			throw new IllegalArgumentException( "decompressedLength: " + decompressedLength );
 		}
 
-		final ByteArrayInputStream in = new ByteArrayInputStream( compressedContent );
-		final InflaterInputStream inflated = new InflaterInputStream( in );
-		final CheckedInputStream checked = new CheckedInputStream( inflated, new Adler32() );
-
-		final RtfParser rtfParser = new RtfParser();
-		final RtfGroup text = rtfParser.parse( checked );
-
-		final Checksum actualChecksum = checked.getChecksum();
-		if ( expectedChecksum != (int)actualChecksum.getValue() )
-		{
-			System.err.println( "WARNING: Checksum error. Expected " + toHex( expectedChecksum ) + ", but was " + toHex( (int)actualChecksum.getValue() ) );
-		}
-
 //		System.out.println( "Unknown text content field:" );
 //		dump( buffer, 2 );
 		skip( buffer, 2 );
 
-		final TextContent result = new TextContent();
-		result.setText( text );
-		return result;
+		final DeflatedText deflated = new DeflatedText( compressedContent, compressedOffset, expectedChecksum, decompressedLength, isVerifyChecksums(), getParseListener() );
+		return isLazyTextContent() ? new TextContent( deflated ) : new TextContent( deflated.inflate() );
 	}
 
-	private ScheduleEntry.AspectRatio parseAspectRatio( int i )
+	private ScheduleEntry.AspectRatio parseAspectRatio( final long offset, final int i )
 	{
 		switch ( i )
 		{
@@ -552,7 +1449,7 @@ public class EwsParser
 			case 3:
 				return ScheduleEntry.AspectRatio.ZOOM;
 			default:
-				System.err.println( "Unsupported aspect ratio: " + i + " (using default instead)" );
+				warning( ParseWarning.Kind.UNSUPPORTED_ASPECT_RATIO, offset, "Unsupported aspect ratio: " + i + " (using default instead)" );
 				return null;
 		}
 	}
@@ -660,4 +1557,25 @@ public class EwsParser
 				throw new IllegalArgumentException( String.valueOf( b ) );
 		}
 	}
+
+	/**
+	 * Parses a null-terminated string from the file header or entry table.
+	 * Unlike {@link Tools#parsePaddedCString}, this re-uses its buffers, so it
+	 * must not be called from content decoding tasks.
+	 *
+	 * @param buffer Buffer to read from.
+	 * @param length Maximum string length; also the number of bytes to read.
+	 *
+	 * @return Parsed string.
+	 */
+	private String parseString( final ByteBuffer buffer, final int length )
+	{
+		CStringDecoder decoder = _stringDecoder;
+		if ( decoder == null || !decoder.getCharset().equals( getCharset() ) )
+		{
+			decoder = new CStringDecoder( getCharset() );
+			_stringDecoder = decoder;
+		}
+		return decoder.decodePadded( buffer, length );
+	}
 }
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io.ews;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+/**
+ * Modifies the text fields of entry records in an existing schedule file,
+ * without parsing or rewriting the rest of the file. Each field is a
+ * fixed-size slot in the entry record, which is overwritten in place.
+ *
+ * <pre>
+ * try ( final EwsPatcher patcher = EwsPatcher.open( file ) )
+ * {
+ *     patcher.set( 0, EwsPatcher.Field.TITLE, "Psalm 1" );
+ * }
+ * </pre>
+ *
+ * <p>Instances are not thread-safe.
+ *
+ * @author Gerrit Meinders
+ */
+public class EwsPatcher
+	implements Closeable
+{
+	/**
+	 * Parser used to read the header and entry records, which determines the
+	 * character set.
+	 */
+	private final EwsParser _parser;
+
+	private final FileChannel _channel;
+
+	private final ScheduleHeader _header;
+
+	private final CharsetEncoder _encoder;
+
+	/**
+	 * Opens the given schedule file for patching, using the default
+	 * character set.
+	 *
+	 * @param file Schedule file.
+	 *
+	 * @return Patcher for the file.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static EwsPatcher open( final Path file )
+		throws IOException
+	{
+		return open( new EwsParser(), file );
+	}
+
+	/**
+	 * Opens the given schedule file for patching.
+	 *
+	 * @param parser Parser that determines the character set.
+	 * @param file   Schedule file.
+	 *
+	 * @return Patcher for the file.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static EwsPatcher open( final EwsParser parser, final Path file )
+		throws IOException
+	{
+		final FileChannel channel = FileChannel.open( file, StandardOpenOption.READ, StandardOpenOption.WRITE );
+		try
+		{
+			return new EwsPatcher( parser, channel );
+		}
+		catch ( final IOException | RuntimeException e )
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+	private EwsPatcher( final EwsParser parser, final FileChannel channel )
+		throws IOException
+	{
+		_parser = parser;
+		_channel = channel;
+		_header = parser.parseHeader( ChannelSource.of( channel ).read( 0, (int)Math.min( ScheduleHeader.MAXIMUM_LENGTH, channel.size() ) ) );
+		_encoder = parser.getCharset().newEncoder();
+		_header.checkEntryTable( channel.size() );
+	}
+
+	/**
+	 * Returns the number of entries in the schedule.
+	 *
+	 * @return Number of entries.
+	 */
+	public int entryCount()
+	{
+		return _header.getEntryCount();
+	}
+
+	/**
+	 * Reads the current record of the specified entry.
+	 *
+	 * @param index Index of the entry.
+	 *
+	 * @return Entry record.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public EntryRecord record( final int index )
+		throws IOException
+	{
+		checkIndex( index );
+		final ByteBuffer buffer = ByteBuffer.allocate( _header.getEntryLength() ).order( ByteOrder.LITTLE_ENDIAN );
+		readFully( buffer, _header.getEntryOffset( index ) );
+		buffer.flip();
+		return _parser.parseEntryRecord( buffer, _header, index );
+	}
+
+	/**
+	 * Overwrites the given field of the specified entry. The rest of the file
+	 * is left untouched. Unlike {@link EwsWriter}, which truncates strings
+	 * that are too long and reports a warning, a value that doesn't fit is
+	 * rejected, since the caller asked for this specific field to be set.
+	 *
+	 * @param index Index of the entry.
+	 * @param field Field to be set.
+	 * @param value Value to be set; {@code null} for an empty string.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 * @throws IllegalArgumentException if the value doesn't fit in the field,
+	 * can't be encoded in the character set of the file, or if the field is
+	 * not available in this version of the file format.
+	 */
+	public void set( final int index, final Field field, final String value )
+		throws IOException
+	{
+		checkIndex( index );
+		if ( field.getOffset() + field.getSize() > _header.getEntryLength() )
+		{
+			throw new IllegalArgumentException( field + " is not available in records of " + _header.getEntryLength() + " bytes" );
+		}
+
+		final ByteBuffer slot = encode( field, ( value == null ) ? "" : value );
+		writeFully( slot, _header.getEntryOffset( index ) + field.getOffset() );
+	}
+
+	/**
+	 * Encodes the given value into a slot for the given field, padded with
+	 * null characters. The last byte is always a null character.
+	 */
+	private ByteBuffer encode( final Field field, final String value )
+	{
+		final ByteBuffer result = ByteBuffer.allocate( field.getSize() );
+		result.limit( field.getMaximumLength() );
+
+		_encoder.reset();
+		CoderResult coderResult = _encoder.encode( CharBuffer.wrap( value ), result, true );
+		if ( coderResult.isUnderflow() )
+		{
+			coderResult = _encoder.flush( result );
+		}
+
+		if ( coderResult.isOverflow() )
+		{
+			throw new IllegalArgumentException( field + " is limited to " + field.getMaximumLength() + " bytes: " + value );
+		}
+		else if ( coderResult.isError() )
+		{
+			throw new IllegalArgumentException( field + " can't be encoded using " + _encoder.charset() + ": " + value );
+		}
+
+		// Remaining bytes are already zero.
+		result.clear();
+		return result;
+	}
+
+	private void readFully( final ByteBuffer buffer, final long position )
+		throws IOException
+	{
+		while ( buffer.hasRemaining() )
+		{
+			if ( _channel.read( buffer, position + buffer.position() ) < 0 )
+			{
+				throw new EOFException( "Unexpected end of file at " + ( position + buffer.position() ) );
+			}
+		}
+	}
+
+	private void writeFully( final ByteBuffer buffer, final long position )
+		throws IOException
+	{
+		while ( buffer.hasRemaining() )
+		{
+			_channel.write( buffer, position + buffer.position() );
+		}
+	}
+
+	private void checkIndex( final int index )
+	{
+		if ( index < 0 || index >= entryCount() )
+		{
+			throw new IndexOutOfBoundsException( "index: " + index + ", entryCount: " + entryCount() );
+		}
+	}
+
+	@Override
+	public void close()
+		throws IOException
+	{
+		_channel.close();
+	}
+
+	/**
+	 * Text field of an entry record.
+	 */
+	public enum Field
+	{
+		TITLE( 0, 51 ),
+		AUTHOR( 307, 51 ),
+		COPYRIGHT( 358, 101 ),
+		ADMINISTRATOR( 459, 51 ),
+
+		/**
+		 * Notes for the entry. Not available in files before version 3.
+		 */
+		NOTES( 1155, 161 ),
+
+		/**
+		 * Song number. Not available in files before version 3.
+		 */
+		SONG_NUMBER( 1410, 11 );
+
+		/**
+		 * Offset of the slot in the entry record.
+		 */
+		private final int _offset;
+
+		/**
+		 * Size of the slot, including the null terminator.
+		 */
+		private final int _size;
+
+		Field( final int offset, final int size )
+		{
+			_offset = offset;
+			_size = size;
+		}
+
+		public int getOffset()
+		{
+			return _offset;
+		}
+
+		public int getSize()
+		{
+			return _size;
+		}
+
+		/**
+		 * Returns the maximum length of an encoded value, which leaves room
+		 * for a null terminator.
+		 *
+		 * @return Maximum length in bytes.
+		 */
+		public int getMaximumLength()
+		{
+			return _size - 1;
+		}
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io.ews;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.*;
+
+/**
+ * Reads the entries of a schedule one at a time. Unlike {@link EwsParser},
+ * which builds a complete {@link Schedule}, the content of an entry is only
+ * decoded when that entry is reached and is not retained by the reader.
+ *
+ * @author Gerrit Meinders
+ */
+public class EwsReader
+	implements Iterator<ScheduleEntry>
+{
+	/**
+	 * Parser used to decode entries.
+	 */
+	private final EwsParser _parser;
+
+	/**
+	 * Buffer containing the schedule.
+	 */
+	private final ByteBuffer _buffer;
+
+	/**
+	 * Header of the schedule.
+	 */
+	private final ScheduleHeader _header;
+
+	/**
+	 * Loads deferred media from the buffer.
+	 */
+	private final MediaLoader _loader;
+
+	/**
+	 * Shares identical media between entries, if enabled by the parser.
+	 */
+	private final MediaCache _cache;
+
+	/**
+	 * Index of the next entry.
+	 */
+	private int _next = 0;
+
+	/**
+	 * Constructs a new instance. As with {@link EwsParser#parse(ByteBuffer)},
+	 * content is copied from the buffer.
+	 *
+	 * @param buffer Buffer containing the schedule.
+	 */
+	public EwsReader( final ByteBuffer buffer )
+	{
+		this( new EwsParser(), buffer );
+	}
+
+	/**
+	 * Constructs a new instance. As with {@link EwsParser#parse(ByteBuffer)},
+	 * content is copied from the buffer.
+	 *
+	 * @param parser Parser used to decode entries, which determines the
+	 *               character set and other options.
+	 * @param buffer Buffer containing the schedule.
+	 */
+	public EwsReader( final EwsParser parser, final ByteBuffer buffer )
+	{
+		this( parser, buffer, false );
+	}
+
+	/**
+	 * Constructs a new instance.
+	 *
+	 * @param parser Parser used to decode entries.
+	 * @param buffer Buffer containing the schedule.
+	 * @param shared Whether parsed content may refer to the buffer.
+	 */
+	private EwsReader( final EwsParser parser, final ByteBuffer buffer, final boolean shared )
+	{
+		_parser = parser;
+		_buffer = buffer.duplicate();
+		_buffer.position( 0 );
+		_header = parser.parseHeader( _buffer );
+		_header.checkEntryTable( _buffer.limit() );
+		_loader = shared ? EwsParser.createBufferLoader( _buffer ) : EwsParser.createCopyingLoader( _buffer );
+		_cache = parser.createMediaCache();
+	}
+
+	/**
+	 * Creates a reader for the given file. The file is mapped into memory,
+	 * so it must not be modified or truncated while the reader or any entries
+	 * read from it are in use; see {@link EwsParser#parse(Path)}.
+	 *
+	 * @param parser Parser used to decode entries.
+	 * @param file   File to be read.
+	 *
+	 * @return Schedule reader.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static EwsReader open( final EwsParser parser, final Path file )
+	throws IOException
+	{
+		try ( final FileChannel channel = FileChannel.open( file, StandardOpenOption.READ ) )
+		{
+			return new EwsReader( parser, EwsParser.map( channel ), true );
+		}
+	}
+
+	/**
+	 * Returns the number of entries in the schedule.
+	 *
+	 * @return Number of entries.
+	 */
+	public int getEntryCount()
+	{
+		return _header.getEntryCount();
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		return _next < _header.getEntryCount();
+	}
+
+	/**
+	 * Parses the next entry.
+	 *
+	 * @return Schedule entry.
+	 *
+	 * @throws NoSuchElementException if there are no more entries.
+	 * @throws UncheckedIOException if the entry can't be parsed.
+	 */
+	@Override
+	public ScheduleEntry next()
+	{
+		if ( !hasNext() )
+		{
+			throw new NoSuchElementException();
+		}
+
+		try
+		{
+			return _parser.parseEntry( _buffer, _header, _next++, _loader, _cache, null );
+		}
+		catch ( final IOException e )
+		{
+			throw new UncheckedIOException( e );
+		}
+	}
+
+	/**
+	 * Returns a spliterator over the remaining entries.
+	 *
+	 * @return Spliterator.
+	 */
+	public Spliterator<ScheduleEntry> spliterator()
+	{
+		return Spliterators.spliterator( this, _header.getEntryCount() - _next, Spliterator.ORDERED | Spliterator.NONNULL );
+	}
+
+	/**
+	 * Returns a sequential stream of the remaining entries.
+	 *
+	 * @return Stream of entries.
+	 */
+	public Stream<ScheduleEntry> stream()
+	{
+		return StreamSupport.stream( spliterator(), false );
+	}
+}
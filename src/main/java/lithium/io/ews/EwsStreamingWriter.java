@@ -0,0 +1,348 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io.ews;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+import lithium.io.*;
+
+/**
+ * Writes a schedule one entry at a time, without keeping previous entries in
+ * memory. Since the entry table precedes all content, entries are written to
+ * temporary files first. When the schedule is finished, the header and entry
+ * table are written to the target, followed by the content.
+ *
+ * <pre>
+ * try (final EwsStreamingWriter writer = new EwsStreamingWriter(channel)) {
+ *     for (final ScheduleEntry entry : entries) {
+ *         writer.addEntry(entry);
+ *     }
+ *     writer.finish();
+ * }
+ * </pre>
+ *
+ * <p>The output is identical to that of {@link EwsWriter} for the same
+ * entries.
+ *
+ * @author Gerrit Meinders
+ */
+public class EwsStreamingWriter
+        implements Closeable {
+    /**
+     * Channel to write the schedule to.
+     */
+    private final WritableByteChannel _target;
+
+    /**
+     * Directory for temporary files; {@code null} for the default.
+     */
+    private final Path _temporaryDirectory;
+
+    /**
+     * Encodes entry records and content.
+     */
+    private final EwsWriter _writer = new EwsWriter();
+
+    /**
+     * Temporary file containing entry records, with content pointers
+     * relative to the start of the content.
+     */
+    private FileChannel _records = null;
+
+    /**
+     * Temporary file containing the content of all entries.
+     */
+    private FileChannel _content = null;
+
+    private RecordEncoder _recordEncoder = null;
+
+    private RecordEncoder _contentEncoder = null;
+
+    /**
+     * Entries with a media content pointer, which must be relocated along
+     * with the content pointer.
+     */
+    private final BitSet _hasMediaContentPointer = new BitSet();
+
+    private int _entryCount = 0;
+
+    /**
+     * Length of the content written so far.
+     */
+    private long _contentLength = 0;
+
+    private boolean _finished = false;
+
+    /**
+     * Whether writing an entry failed after part of it was written, which
+     * leaves the temporary files in an inconsistent state.
+     */
+    private boolean _failed = false;
+
+    /**
+     * Constructs a new instance that writes to the given stream.
+     *
+     * @param out Stream to write to.
+     */
+    public EwsStreamingWriter(final OutputStream out) {
+        this(Channels.newChannel(out), null);
+    }
+
+    /**
+     * Constructs a new instance that writes to the given channel.
+     *
+     * @param target Channel to write to.
+     */
+    public EwsStreamingWriter(final WritableByteChannel target) {
+        this(target, null);
+    }
+
+    /**
+     * Constructs a new instance that writes to the given channel, using the
+     * given directory for temporary files.
+     *
+     * @param target             Channel to write to.
+     * @param temporaryDirectory Directory for temporary files; {@code null}
+     *                           for the default temporary-file directory.
+     */
+    public EwsStreamingWriter(final WritableByteChannel target, final Path temporaryDirectory) {
+        _target = target;
+        _temporaryDirectory = temporaryDirectory;
+    }
+
+    public Charset getCharset() {
+        return _writer.getCharset();
+    }
+
+    /**
+     * Sets the character set used for strings in entry records.
+     *
+     * @param charset Character set to be used.
+     *
+     * @throws IllegalStateException if entries were already added.
+     */
+    public void setCharset(final Charset charset) {
+        if (_records != null) {
+            throw new IllegalStateException("Entries were already added");
+        }
+        _writer.setCharset(charset);
+    }
+
+    /**
+     * Sets the compression level and strategy for text content.
+     *
+     * @param compression Compression preset.
+     *
+     * @see EwsWriter#setCompression
+     */
+    public void setCompression(final EwsWriter.Compression compression) {
+        _writer.setCompression(compression);
+    }
+
+    /**
+     * Sets the listener that receives warnings about text content that can't
+     * be written exactly.
+     *
+     * @param parseListener Listener to be set.
+     *
+     * @see EwsWriter#setParseListener
+     */
+    public void setParseListener(final ParseListener parseListener) {
+        _writer.setParseListener(parseListener);
+    }
+
+    /**
+     * Returns the number of entries added so far.
+     *
+     * @return Number of entries.
+     */
+    public int getEntryCount() {
+        return _entryCount;
+    }
+
+    /**
+     * Adds the given entry to the schedule. The entry and its content are not
+     * referenced afterwards.
+     *
+     * <p>If the entry can't be encoded or is too large, nothing is written
+     * and other entries may still be added. If writing fails after that, the
+     * writer can no longer be used.
+     *
+     * @param entry Entry to be added.
+     *
+     * @throws IOException if the entry can't be written.
+     * @throws IllegalStateException if the schedule is finished, or if writing
+     * a previous entry failed.
+     */
+    public void addEntry(final ScheduleEntry entry)
+            throws IOException {
+        checkState();
+        if (_records == null) {
+            open();
+        }
+
+        final EwsWriter.EntryPlan plan = _writer.planEntry(entry);
+        final long end = EwsWriter.SCHEDULE_HEADER_LENGTH + (long) (_entryCount + 1) * EwsWriter.SCHEDULE_ENTRY_LENGTH + _contentLength + plan.getLength();
+        if (end > Integer.MAX_VALUE) {
+            throw new IOException("Schedule is too large: entry " + _entryCount + " would end at " + end);
+        }
+
+        plan.setContentPointer((int) _contentLength);
+        try {
+            _writer.writeEntryInformation(_recordEncoder, plan);
+            _writer.writeContent(_contentEncoder, plan);
+        } catch (final IOException | RuntimeException | Error e) {
+            _failed = true;
+            throw e;
+        }
+
+        if (plan.hasMediaContentPointer()) {
+            _hasMediaContentPointer.set(_entryCount);
+        }
+        _entryCount++;
+        _contentLength += plan.getLength();
+    }
+
+    /**
+     * Writes the header, entry table and content to the target. The target is
+     * not closed.
+     *
+     * @throws IOException if an I/O error occurs.
+     * @throws IllegalStateException if the schedule is already finished, or
+     * if writing an entry failed.
+     */
+    public void finish()
+            throws IOException {
+        checkState();
+        _finished = true;
+
+        if (_records == null) {
+            open();
+        }
+        _recordEncoder.flush();
+        _contentEncoder.flush();
+
+        final RecordEncoder encoder = new RecordEncoder(ByteBuffer.allocateDirect(RecordEncoder.DEFAULT_CAPACITY), _target, getCharset());
+        _writer.writeScheduleHeader(encoder, _entryCount);
+        encoder.flush();
+
+        writeEntryTable();
+        transferContent();
+    }
+
+    private void checkState() {
+        if (_failed) {
+            throw new IllegalStateException("Schedule is incomplete, since writing an entry failed");
+        }
+        if (_finished) {
+            throw new IllegalStateException("Schedule is finished");
+        }
+    }
+
+    /**
+     * Copies the entry records to the target, relocating their pointers now
+     * that the length of the entry table is known.
+     */
+    private void writeEntryTable()
+            throws IOException {
+        final int base = EwsWriter.SCHEDULE_HEADER_LENGTH + _entryCount * EwsWriter.SCHEDULE_ENTRY_LENGTH;
+        final int recordsPerChunk = 32;
+        final ByteBuffer chunk = ByteBuffer.allocateDirect(recordsPerChunk * EwsWriter.SCHEDULE_ENTRY_LENGTH);
+        chunk.order(ByteOrder.LITTLE_ENDIAN);
+
+        long position = 0;
+        for (int first = 0; first < _entryCount; first += recordsPerChunk) {
+            final int count = Math.min(recordsPerChunk, _entryCount - first);
+            chunk.clear();
+            chunk.limit(count * EwsWriter.SCHEDULE_ENTRY_LENGTH);
+            while (chunk.hasRemaining()) {
+                if (_records.read(chunk, position + chunk.position()) < 0) {
+                    throw new EOFException("Unexpected end of temporary entry table");
+                }
+            }
+            position += chunk.limit();
+
+            for (int i = 0; i < count; i++) {
+                final int record = i * EwsWriter.SCHEDULE_ENTRY_LENGTH;
+                relocate(chunk, record + EwsWriter.CONTENT_POINTER_OFFSET, base);
+                if (_hasMediaContentPointer.get(first + i)) {
+                    relocate(chunk, record + EwsWriter.MEDIA_CONTENT_POINTER_OFFSET, base);
+                }
+            }
+
+            chunk.flip();
+            Tools.writeFully(_target, chunk);
+        }
+    }
+
+    private static void relocate(final ByteBuffer buffer, final int index, final int base) {
+        buffer.putInt(index, buffer.getInt(index) + base);
+    }
+
+    private void transferContent()
+            throws IOException {
+        final long size = _content.size();
+        long position = 0;
+        while (position < size) {
+            position += _content.transferTo(position, size - position, _target);
+        }
+    }
+
+    private void open()
+            throws IOException {
+        _records = openTemporaryFile();
+        _content = openTemporaryFile();
+        _recordEncoder = new RecordEncoder(ByteBuffer.allocateDirect(RecordEncoder.DEFAULT_CAPACITY), _records, getCharset());
+        _contentEncoder = new RecordEncoder(ByteBuffer.allocateDirect(RecordEncoder.DEFAULT_CAPACITY), _content, getCharset());
+    }
+
+    private FileChannel openTemporaryFile()
+            throws IOException {
+        final Path file = (_temporaryDirectory == null)
+                          ? Files.createTempFile("schedule", ".tmp")
+                          : Files.createTempFile(_temporaryDirectory, "schedule", ".tmp");
+        try {
+            return FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (final IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Removes the temporary files. The target is not closed.
+     */
+    @Override
+    public void close()
+            throws IOException {
+        _finished = true;
+        try {
+            if (_records != null) {
+                _records.close();
+            }
+        } finally {
+            if (_content != null) {
+                _content.close();
+            }
+        }
+    }
+}
@@ -16,11 +16,14 @@
  */
 package lithium.io.ews;
 
-import java.awt.*;
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
 import java.nio.charset.*;
+import java.time.*;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.zip.*;
 
 import lithium.io.*;
@@ -33,15 +36,119 @@ import lithium.io.rtf.*;
  */
 public class EwsWriter
 {
-    private static final int SCHEDULE_ENTRY_LENGTH = 1816;
+    static final int SCHEDULE_HEADER_LENGTH = 62;
+    static final int SCHEDULE_ENTRY_LENGTH = 1816;
+    static final int CONTENT_POINTER_OFFSET = 800;
+    static final int MEDIA_CONTENT_POINTER_OFFSET = 1496;
     private static final int SCHEDULE_ENTRY_PRESENTATION_HEADER_LENGTH = 48;
 
+    /**
+     * Stream to write to; {@code null} when writing to a channel.
+     */
     private final OutputStream _out;
 
+    /**
+     * Channel to write to; {@code null} when writing to a stream.
+     */
+    private final WritableByteChannel _channel;
+
+    /**
+     * Buffer that entry records and other small values are encoded into.
+     */
+    private final ByteBuffer _buffer;
+
     private Charset _charset = Charset.forName(Config.charset);
 
+    /**
+     * Encoder for the schedule currently being written.
+     */
+    private RecordEncoder _encoder = null;
+
+    /**
+     * Executor used to compress text content in parallel, if any.
+     */
+    private Executor _executor = null;
+
+    /**
+     * Maximum number of entries being compressed in parallel at any time.
+     */
+    private int _maximumTasksInFlight = 2 * Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Deflate compression level for text content.
+     */
+    private int _compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * Deflate compression strategy for text content.
+     */
+    private int _compressionStrategy = Deflater.DEFAULT_STRATEGY;
+
+    /**
+     * Receives warnings about text content that can't be written exactly.
+     */
+    private ParseListener _parseListener = ParseListener.STANDARD_ERROR;
+
     public EwsWriter(final OutputStream out) {
+        this(out, ByteBuffer.allocate(RecordEncoder.DEFAULT_CAPACITY));
+    }
+
+    /**
+     * Constructs a new instance that encodes into the given buffer, e.g. a
+     * pooled direct buffer. The buffer is used by every call to {@link
+     * #write}, so it must not be used for anything else in the mean time.
+     *
+     * @param out    Stream to write to.
+     * @param buffer Buffer of at least 2048 bytes.
+     */
+    public EwsWriter(final OutputStream out, final ByteBuffer buffer) {
+        this(out, null, buffer);
+    }
+
+    /**
+     * Constructs a new instance that writes to the given channel, e.g. a
+     * {@link FileChannel}. Entry records are written together with the
+     * content that follows them, using gathering writes. Media that is
+     * backed by a memory-mapped file is written without copying it to the
+     * heap, while media that was deferred when parsing a file is transferred
+     * directly from that file.
+     *
+     * @param channel Channel to write to.
+     */
+    public EwsWriter(final WritableByteChannel channel) {
+        this(channel, ByteBuffer.allocateDirect(RecordEncoder.DEFAULT_CAPACITY));
+    }
+
+    /**
+     * Constructs a new instance that writes to the given channel and encodes
+     * into the given buffer, e.g. a pooled direct buffer.
+     *
+     * @param channel Channel to write to.
+     * @param buffer  Buffer of at least 2048 bytes.
+     *
+     * @see #EwsWriter(WritableByteChannel)
+     */
+    public EwsWriter(final WritableByteChannel channel, final ByteBuffer buffer) {
+        this(null, channel, buffer);
+    }
+
+    private EwsWriter(final OutputStream out, final WritableByteChannel channel, final ByteBuffer buffer) {
+        if (buffer.capacity() < RecordEncoder.MINIMUM_CAPACITY) {
+            throw new IllegalArgumentException("Buffer capacity must be at least " + RecordEncoder.MINIMUM_CAPACITY + ", but was " + buffer.capacity());
+        }
         _out = out;
+        _channel = channel;
+        _buffer = buffer;
+    }
+
+    /**
+     * Constructs a new instance without a target, for use with the methods
+     * that take an explicit encoder.
+     */
+    EwsWriter() {
+        _out = null;
+        _channel = null;
+        _buffer = null;
     }
 
     public Charset getCharset() {
@@ -52,54 +159,407 @@ public class EwsWriter
         _charset = charset;
     }
 
+    public Executor getExecutor() {
+        return _executor;
+    }
+
+    /**
+     * Sets an executor to serialize and compress the text content of entries
+     * in parallel, e.g. {@link ForkJoinPool#commonPool()}. Once all content
+     * is compressed, the file is written in order on the calling thread.
+     *
+     * @param executor Executor to be used; {@code null} to compress all
+     *                 content on the calling thread.
+     */
+    public void setExecutor(final Executor executor) {
+        _executor = executor;
+    }
+
+    public int getMaximumTasksInFlight() {
+        return _maximumTasksInFlight;
+    }
+
+    /**
+     * Sets the maximum number of entries being compressed or queued for
+     * compression at any time, when using an executor. This bounds the
+     * memory used for uncompressed text.
+     *
+     * @param maximumTasksInFlight Maximum number of entries.
+     */
+    public void setMaximumTasksInFlight(final int maximumTasksInFlight) {
+        if (maximumTasksInFlight < 1) {
+            throw new IllegalArgumentException("maximumTasksInFlight: " + maximumTasksInFlight);
+        }
+        _maximumTasksInFlight = maximumTasksInFlight;
+    }
+
+    /**
+     * Sets the compression level and strategy for text content to the given
+     * preset.
+     *
+     * @param compression Compression preset.
+     */
+    public void setCompression(final Compression compression) {
+        setCompressionLevel(compression.getLevel());
+        setCompressionStrategy(compression.getStrategy());
+    }
+
+    public int getCompressionLevel() {
+        return _compressionLevel;
+    }
+
+    /**
+     * Sets the deflate compression level for text content. Any level results
+     * in a valid zlib stream; only speed and size are affected.
+     *
+     * @param compressionLevel Compression level from {@link
+     *                         Deflater#BEST_SPEED} to {@link
+     *                         Deflater#BEST_COMPRESSION}, {@link
+     *                         Deflater#NO_COMPRESSION} or {@link
+     *                         Deflater#DEFAULT_COMPRESSION}.
+     */
+    public void setCompressionLevel(final int compressionLevel) {
+        if (compressionLevel < Deflater.DEFAULT_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("compressionLevel: " + compressionLevel);
+        }
+        _compressionLevel = compressionLevel;
+    }
+
+    public int getCompressionStrategy() {
+        return _compressionStrategy;
+    }
+
+    /**
+     * Sets the deflate compression strategy for text content.
+     *
+     * @param compressionStrategy {@link Deflater#DEFAULT_STRATEGY}, {@link
+     *                            Deflater#FILTERED} or {@link
+     *                            Deflater#HUFFMAN_ONLY}.
+     */
+    public void setCompressionStrategy(final int compressionStrategy) {
+        if (compressionStrategy != Deflater.DEFAULT_STRATEGY &&
+            compressionStrategy != Deflater.FILTERED &&
+            compressionStrategy != Deflater.HUFFMAN_ONLY) {
+            throw new IllegalArgumentException("compressionStrategy: " + compressionStrategy);
+        }
+        _compressionStrategy = compressionStrategy;
+    }
+
+    public ParseListener getParseListener() {
+        return _parseListener;
+    }
+
+    /**
+     * Sets the listener that receives warnings about text content that can't
+     * be written exactly, e.g. unsupported code pages and character sets. By
+     * default, warnings are printed to {@link System#err}. When writing in
+     * parallel, the listener is called from the threads of the executor.
+     *
+     * @param parseListener Listener to be set.
+     */
+    public void setParseListener(final ParseListener parseListener) {
+        if (parseListener == null) {
+            throw new NullPointerException("parseListener");
+        }
+        _parseListener = parseListener;
+    }
+
     public void write(final Schedule schedule)
             throws IOException {
         writeImpl(schedule);
     }
 
+    /**
+     * Computes the size of the file that {@link #write} would produce for the
+     * given schedule, e.g. to preallocate the output. Text content is
+     * compressed to determine its length, so this is about as expensive as
+     * writing the schedule.
+     *
+     * @param schedule Schedule to compute the size of.
+     *
+     * @return Size of the schedule file in bytes.
+     *
+     * @throws IOException if the schedule can't be written.
+     */
+    public long computeSize(final Schedule schedule)
+            throws IOException {
+        final List<EntryPlan> plans = plan(schedule.getEntries());
+        final long result;
+        if (plans.isEmpty()) {
+            result = SCHEDULE_HEADER_LENGTH;
+        } else {
+            final EntryPlan last = plans.get(plans.size() - 1);
+            result = (long) last.contentPointer + last.getLength();
+        }
+        return result;
+    }
+
     private void writeImpl(final Schedule schedule)
             throws IOException {
         final List<ScheduleEntry> entries = schedule.getEntries();
-        final int scheduleLength = entries.size() * SCHEDULE_ENTRY_LENGTH;
-        int cumulativeContentLength = 0;
+        final List<EntryPlan> plans = plan(entries);
+
+        _encoder = (_channel != null)
+                   ? new RecordEncoder(_buffer, _channel, getCharset())
+                   : new RecordEncoder(_buffer, _out, getCharset());
+        try {
+            writeEntries(entries, plans);
+            _encoder.flush();
+        } finally {
+            _encoder = null;
+        }
+    }
 
-        writeScheduleHeader(entries);
+    private void writeEntries(final List<ScheduleEntry> entries, final List<EntryPlan> plans)
+            throws IOException {
+        writeScheduleHeader(entries.size());
 
         // Add entries
-        for (final ScheduleEntry entry : entries) {
-            writeEntryInformation(entry, scheduleLength, cumulativeContentLength);
-
-            cumulativeContentLength += getEntryContentLength(entry);
-            cumulativeContentLength += getPresentationLength(entry);
-            cumulativeContentLength += getBackgroundContentLength(entry);
-            cumulativeContentLength += getMediaContentLength(entry);
+        for (final EntryPlan plan : plans) {
+            writeEntryInformation(plan);
         }
 
         // Add content
+        for (final EntryPlan plan : plans) {
+            writeContent(plan);
+        }
+    }
+
+    /**
+     * Plans a single entry, for {@link EwsStreamingWriter}. The content
+     * pointer of the plan is still to be set.
+     */
+    EntryPlan planEntry(final ScheduleEntry entry)
+            throws IOException {
+        final EntryPlan result = new EntryPlan(entry);
+        encodeContent(result);
+        return result;
+    }
+
+    /**
+     * Writes the file header using the given encoder.
+     */
+    void writeScheduleHeader(final RecordEncoder encoder, final int entryCount)
+            throws IOException {
+        _encoder = encoder;
+        try {
+            writeScheduleHeader(entryCount);
+        } finally {
+            _encoder = null;
+        }
+    }
+
+    /**
+     * Writes the entry record for the given plan using the given encoder.
+     */
+    void writeEntryInformation(final RecordEncoder encoder, final EntryPlan plan)
+            throws IOException {
+        _encoder = encoder;
+        try {
+            writeEntryInformation(plan);
+        } finally {
+            _encoder = null;
+        }
+    }
+
+    /**
+     * Writes all blocks of content for the given plan using the given encoder.
+     */
+    void writeContent(final RecordEncoder encoder, final EntryPlan plan)
+            throws IOException {
+        _encoder = encoder;
+        try {
+            writeContent(plan);
+        } finally {
+            _encoder = null;
+        }
+    }
+
+    private void writeContent(final EntryPlan plan)
+            throws IOException {
+        if (plan.raw != null) {
+            _encoder.write(plan.raw.getContent());
+            return;
+        }
+
+        final ScheduleEntry entry = plan.entry;
+        writeContentForEntry(plan);
+
+        if ( entry.getType() == ScheduleEntry.Type.PRESENTATION ) {
+            writePresentationForEntry( entry);
+        }
+
+        writeBackgroundMediaForEntry( entry);
+        writeMediaForEntry(entry);
+    }
+
+    /**
+     * Determines the layout of the given entries, compressing any text
+     * content along the way. The compressed text is kept until it is written.
+     */
+    private List<EntryPlan> plan(final List<ScheduleEntry> entries)
+            throws IOException {
+        final List<EntryPlan> result = new ArrayList<EntryPlan>(entries.size());
         for (final ScheduleEntry entry : entries) {
-            writeContentForEntry(entry);
+            result.add(new EntryPlan(entry));
+        }
+
+        final Executor executor = getExecutor();
+        if (executor == null) {
+            for (final EntryPlan plan : result) {
+                encodeContent(plan);
+            }
+        } else {
+            encodeContentInParallel(result, executor);
+        }
+
+        long contentPointer = SCHEDULE_HEADER_LENGTH + (long) entries.size() * SCHEDULE_ENTRY_LENGTH;
+        for (final EntryPlan plan : result) {
+            if (contentPointer > Integer.MAX_VALUE) {
+                throw new IOException("Schedule is too large: content of entry " + result.indexOf(plan) + " starts at " + contentPointer);
+            }
+            plan.setContentPointer((int) contentPointer);
+            contentPointer += plan.getLength();
+        }
+        return result;
+    }
+
+    /**
+     * Encodes the text content of the given entries using the given executor.
+     * The number of entries being encoded at any time is limited, to bound
+     * the memory used for uncompressed text.
+     */
+    private void encodeContentInParallel(final List<EntryPlan> plans, final Executor executor)
+            throws IOException {
+        final Semaphore tasksInFlight = new Semaphore(getMaximumTasksInFlight());
+        final List<CompletableFuture<Void>> futures = new ArrayList<CompletableFuture<Void>>();
+        try {
+            for (final EntryPlan plan : plans) {
+                // Checking whether text was modified is comparable to encoding it, so it's done by the task.
+                if (!(plan.entry.getContent() instanceof TextContent)) {
+                    encodeContent(plan);
+                    continue;
+                }
+
+                tasksInFlight.acquire();
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        encodeContent(plan);
+                    } catch (final IOException e) {
+                        throw new CompletionException(e);
+                    } finally {
+                        tasksInFlight.release();
+                    }
+                }, executor));
+            }
 
-            if ( entry.getType() == ScheduleEntry.Type.PRESENTATION ) {
-                writePresentationForEntry( entry);
+            for (final CompletableFuture<Void> future : futures) {
+                future.join();
             }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while encoding text content");
+        } catch (final CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Computes the length of each block of the given entry, compressing its
+     * text content, if any.
+     */
+    private void encodeContent(final EntryPlan plan)
+            throws IOException {
+        final ScheduleEntry entry = plan.entry;
+
+        // Copy unmodified entries verbatim, unless strings are to be encoded differently.
+        final RawEntry raw = entry.getRaw();
+        if (raw != null && raw.getCharset().equals(getCharset())) {
+            plan.raw = raw;
+            plan.contentLength = raw.getContentLength();
+            return;
+        }
+
+        final Content content = entry.getContent();
+        if (content instanceof TextContent) {
+            final byte[] text = RtfWriter.writeToBytes(((TextContent) content).getText(), getParseListener());
+            plan.textLength = text.length;
+            deflate(plan, text);
+            plan.contentLength = plan.compressedTextLength + 14;
+        } else if (content instanceof BinaryContent) {
+            final BinaryContent binaryContent = (BinaryContent) content;
+            plan.contentLength = binaryContent.getLength() + 4 + (binaryContent.isPrecededByZeros() ? 4 : 0);
+        } else if (content != null) {
+            throw new IllegalArgumentException("Unsupported content: " + content);
+        }
+
+        plan.presentationLength = getPresentationLength(entry);
+        plan.backgroundLength = getBackgroundContentLength(entry);
+        plan.mediaLength = getMediaContentLength(entry);
+    }
 
-            writeBackgroundMediaForEntry( entry);
-            writeMediaForEntry(entry);
+    /**
+     * Compresses the given text into a zlib stream, which includes the
+     * Adler-32 checksum, and stores it in the given plan. Each call uses its
+     * own deflater, whose native memory is released as soon as it's done.
+     */
+    private void deflate(final EntryPlan plan, final byte[] text) {
+        final Deflater deflater = new Deflater(getCompressionLevel());
+        byte[] compressed;
+        int length = 0;
+        try {
+            deflater.setStrategy(getCompressionStrategy());
+            deflater.setInput(text);
+            deflater.finish();
+
+            // Enough for incompressible input, including the zlib header and trailer.
+            compressed = new byte[text.length + (text.length >> 12) + (text.length >> 14) + 64];
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        // Don't hold on to unused space, since all compressed text is kept until written.
+        if (length < compressed.length / 2) {
+            compressed = Arrays.copyOf(compressed, length);
         }
+
+        plan.compressedText = compressed;
+        plan.compressedTextLength = length;
     }
 
-    private void writeScheduleHeader(List<ScheduleEntry> entries) throws IOException {
+    private void writeScheduleHeader(final int entryCount) throws IOException {
         writeString("EasyWorship Schedule File Version    5");
         writeInt(0x00001a00);
         writeInt(0);
         writeInt(0x00004014);
         writeInt(0);
         writeShort(0x4014);
-        writeInt(entries.size());
+        writeInt(entryCount);
         writeShort(SCHEDULE_ENTRY_LENGTH);
     }
 
-    private void writeEntryInformation(ScheduleEntry entry, int scheduleLength, int cumulativeContentLength) throws IOException {
+    private void writeEntryInformation(final EntryPlan plan) throws IOException {
+        if (plan.raw != null) {
+            writeRawEntryInformation(plan);
+            return;
+        }
+
+        final ScheduleEntry entry = plan.entry;
+
         // Song information
         writePaddedString(entry.getTitle(), 51);            // title
         writePaddedString(entry.getMediaResource(), 256);   // mediaResource
@@ -109,10 +569,9 @@ public class EwsWriter
 
         writeBackgroundInformation(entry);
 
-        writeTimestamp(entry.getTimestamp());
+        writeTimestamp(entry.getLocalTimestamp());
 
-        final int contentPointer = 62 + scheduleLength + cumulativeContentLength;
-        writeInt(contentPointer);
+        writeInt(plan.contentPointer);
 
         writeZeroes(16);    // Skip
         writeInt(parseEntryType(entry.getType()));  // Entry type
@@ -124,14 +583,14 @@ public class EwsWriter
 	    writeInt( presentationMagicValue );
         writeZeroes(4);    // Skip
         writeInt( entry.getType() == ScheduleEntry.Type.PRESENTATION ? 1 : 0 );          // isPresentation
-        writeInt( getPresentationLength( entry ));            // presentationLength
+        writeInt( plan.presentationLength );            // presentationLength
 
-        _out.write(0);          // customFontSettings
-        _out.write(1);          // fontSizeAutomatic
-        _out.write(0);          // Skip
-        _out.write(0);          // Skip
+        writeByte(0);          // customFontSettings
+        writeByte(1);          // fontSizeAutomatic
+        writeByte(0);          // Skip
+        writeByte(0);          // Skip
         writeInt(0);            // fontSize limit
-        _out.write(1);          // useDefaultFont
+        writeByte(1);          // useDefaultFont
         writeZeroes(255);   // fontName
         writeInt(1);            // foregroundAutomatic
         writeInt(0);            // foregroundColor
@@ -139,13 +598,13 @@ public class EwsWriter
         writeInt(0);            // shadowColor
         writeInt(1);            // outlineAutomatic
         writeInt(0);            // outlineColor
-        _out.write(parseTristate(null));    // shadowEnabled
-        _out.write(parseTristate(null));    // outlineEnabled
-        _out.write(parseTristate(null));    // boldEnabled
-        _out.write(parseTristate(null));    // italicEnabled
-        _out.write(parseHorizontalAlignment(ScheduleEntry.HorizontalAlignment.DEFAULT));    // horizontalTextAlignment
-        _out.write(parseVerticalAlignment(ScheduleEntry.VerticalAlignment.DEFAULT));        // verticalTextAlignment
-        _out.write(1);          // defaultTextMargins
+        writeByte(parseTristate(null));    // shadowEnabled
+        writeByte(parseTristate(null));    // outlineEnabled
+        writeByte(parseTristate(null));    // boldEnabled
+        writeByte(parseTristate(null));    // italicEnabled
+        writeByte(parseHorizontalAlignment(ScheduleEntry.HorizontalAlignment.DEFAULT));    // horizontalTextAlignment
+        writeByte(parseVerticalAlignment(ScheduleEntry.VerticalAlignment.DEFAULT));        // verticalTextAlignment
+        writeByte(1);          // defaultTextMargins
         writeInt(0);            // textMarginLeft
         writeInt(0);            // textMarginTop
         writeInt(0);            // textMarginRight
@@ -155,16 +614,15 @@ public class EwsWriter
         writePaddedString(entry.getNotes(), 161);
         writeZeroes(94);    // skip
         writePaddedString(entry.getSongNumber(), 11);
-        _out.write(0);    // skip
-        _out.write(0);    // media embedded
+        writeByte(0);    // skip
+        writeByte(0);    // media embedded
         writeZeroes(57);        // skip
 
         final int originalResourceLength = getOriginalResourceLength( entry );
         writeInt(originalResourceLength);
         writeZeroes(12);        // skip
 
-        final int mediaContentPointer = getMediaContentPointer( entry, contentPointer );
-        writeInt(mediaContentPointer);
+        writeInt(plan.mediaContentPointer);
 
         writeZeroes(20);    // skip
 
@@ -173,12 +631,31 @@ public class EwsWriter
         writeZeroes(292);    // skip
     }
 
+    /**
+     * Writes the original entry record of the given plan, with its pointers
+     * adjusted to the new position of its content.
+     */
+    private void writeRawEntryInformation(final EntryPlan plan) throws IOException {
+        final ByteBuffer record = plan.raw.getRecord();
+        writeRange(record, 0, CONTENT_POINTER_OFFSET);
+        writeInt(plan.contentPointer);
+        writeRange(record, CONTENT_POINTER_OFFSET + 4, MEDIA_CONTENT_POINTER_OFFSET);
+        writeInt(plan.mediaContentPointer);
+        writeRange(record, MEDIA_CONTENT_POINTER_OFFSET + 4, SCHEDULE_ENTRY_LENGTH);
+    }
+
+    private void writeRange(final ByteBuffer buffer, final int start, final int end) throws IOException {
+        buffer.limit(end);
+        buffer.position(start);
+        _encoder.write(buffer);
+    }
+
     private void writeBackgroundInformation(ScheduleEntry entry) throws IOException {
         boolean defaultBackground = false;
         ScheduleEntry.BackgroundType backgroundType = ScheduleEntry.BackgroundType.COLOR;
-        Color backgroundColor = Color.BLACK;
-        Color gradientColor1 = new Color(0, 0, 128);
-        Color gradientColor2 = Color.black;
+        RgbColor backgroundColor = RgbColor.BLACK;
+        RgbColor gradientColor1 = RgbColor.of(0, 0, 128);
+        RgbColor gradientColor2 = RgbColor.BLACK;
         ScheduleEntry.GradientStyle gradientStyle = ScheduleEntry.GradientStyle.DIAGONAL_UP;
         ScheduleEntry.GradientVariant gradientVariant = ScheduleEntry.GradientVariant.LINEAR;
         String backgroundName = "";
@@ -187,13 +664,13 @@ public class EwsWriter
             ColorBackground background = (ColorBackground) entry.getBackground();
 
             backgroundType = ScheduleEntry.BackgroundType.COLOR;
-            backgroundColor = background.getColor();
+            backgroundColor = background.getRgbColor();
         } else if (entry.getBackground() instanceof GradientBackground) {
             GradientBackground background = (GradientBackground) entry.getBackground();
 
             backgroundType = ScheduleEntry.BackgroundType.GRADIENT;
-            gradientColor1 = background.getColor1();
-            gradientColor2 = background.getColor2();
+            gradientColor1 = background.getRgbColor1();
+            gradientColor2 = background.getRgbColor2();
             gradientStyle = background.getStyle();
             gradientVariant = background.getVariant();
         } else if (entry.getBackground() instanceof ImageBackground) {
@@ -220,35 +697,24 @@ public class EwsWriter
             defaultBackground = true;
         }
 
-        _out.write( entry.getType() == ScheduleEntry.Type.PRESENTATION ? 0 : 1);    // Is background set
-        _out.write(defaultBackground ? 1 : 0);
+        writeByte( entry.getType() == ScheduleEntry.Type.PRESENTATION ? 0 : 1);    // Is background set
+        writeByte(defaultBackground ? 1 : 0);
         writeInt(parseBackgroundType(backgroundType));
         writeInt(parseColor(backgroundColor));
         writeInt(parseColor(gradientColor1));
         writeInt(parseColor(gradientColor2));
-        _out.write(parseGradientStyle(gradientStyle));
-        _out.write(parseGradientVariant(gradientVariant));
+        writeByte(parseGradientStyle(gradientStyle));
+        writeByte(parseGradientVariant(gradientVariant));
         writeInt(0);         // skip
-        _out.write(0x00);    // skip
-        _out.write(0x00);    // skip
+        writeByte(0x00);    // skip
+        writeByte(0x00);    // skip
         writePaddedString(backgroundName, 256);
     }
 
     private int getOriginalResourceLength( final ScheduleEntry entry )
     {
         if ( entry.getType() == ScheduleEntry.Type.PRESENTATION) {
-            return ((BinaryContent) entry.getContent()).getBytes().length;
-        }
-        return 0;
-    }
-
-    private int getMediaContentPointer( final ScheduleEntry entry, final int contentPointer )
-            throws IOException {
-        if ( entry.getBackground() instanceof VideoBackground) {
-            final int contentLength = getEntryContentLength( entry ) + getBackgroundContentLength( entry );
-            return contentPointer + contentLength;
-        } else if ( entry.getType() == ScheduleEntry.Type.PRESENTATION) {
-            return contentPointer;
+            return ((BinaryContent) entry.getContent()).getLength();
         }
         return 0;
     }
@@ -265,42 +731,18 @@ public class EwsWriter
         return ScheduleEntry.AspectRatio.STRETCH;
     }
 
-    private int getEntryContentLength(ScheduleEntry entry) throws IOException {
-        final Content content = entry.getContent();
-        if (content instanceof TextContent) {
-            final TextContent textContent = (TextContent) content;
-            final byte[] bytes = RtfWriter.writeToBytes(textContent.getText());
-
-            final ByteArrayOutputStream compressedOut = new ByteArrayOutputStream();
-            final DeflaterOutputStream deflaterOut = new DeflaterOutputStream(compressedOut);
-            deflaterOut.write(bytes);
-            deflaterOut.close();
-            return compressedOut.size() + 14;
-        } else if (content instanceof BinaryContent) {
-            final BinaryContent binaryContent = (BinaryContent) content;
-            final byte[] bytes = binaryContent.getBytes();
-            return bytes.length + 4 + (binaryContent.isPrecededByZeros() ? 4 : 0);
-        } else if (content != null) {
-            throw new IllegalArgumentException("Unsupported content: " + content);
-        }
-        return 0;
-    }
-
     private int getBackgroundContentLength(ScheduleEntry entry) {
         if (entry.getBackground() instanceof ImageBackground) {
-            final byte[] bytes = ((ImageBackground) entry.getBackground()).getImage().getBytes();
-            return 4 + bytes.length;
+            return 4 + ((ImageBackground) entry.getBackground()).getImage().getLength();
         } else if (entry.getBackground() instanceof VideoBackground) {
-            final byte[] bytes = ((VideoBackground) entry.getBackground()).getImage().getBytes();
-            return 4 + bytes.length;
+            return 4 + ((VideoBackground) entry.getBackground()).getImage().getLength();
         }
         return 0;
     }
 
     private int getMediaContentLength(ScheduleEntry entry) {
         if (entry.getBackground() instanceof VideoBackground) {
-            final byte[] bytes = ((VideoBackground) entry.getBackground()).getVideo().getBytes();
-            return 4 + 4 + bytes.length;    // Some types have 4 additional zero bytes. Don't know why.
+            return 4 + 4 + ((VideoBackground) entry.getBackground()).getVideo().getLength();    // Some types have 4 additional zero bytes. Don't know why.
         }
         return 0;
     }
@@ -317,40 +759,30 @@ public class EwsWriter
                                              .getSlides()
                                              .stream()
                                              // Math: 1 = unknown bit; 4 = content length
-                                             .map( it -> 1 + 4 + it.getContent().length )
+                                             .map( it -> 1 + 4 + it.getContentLength() )
                                              .reduce( 0, Integer::sum );
         return headerLength + slidesLength + slidesContentLength;
     }
 
-    private void writeContentForEntry(ScheduleEntry entry) throws IOException {
-        final Content content = entry.getContent();
+    private void writeContentForEntry(final EntryPlan plan) throws IOException {
+        final Content content = plan.entry.getContent();
         if (content instanceof TextContent) {
-            final TextContent textContent = (TextContent) content;
-            final byte[] bytes = RtfWriter.writeToBytes(textContent.getText());
-
-            final ByteArrayOutputStream compressedOut = new ByteArrayOutputStream();
-            final DeflaterOutputStream deflaterOut = new DeflaterOutputStream(compressedOut);
-            deflaterOut.write(bytes);
-            deflaterOut.close();
-
-            final byte[] compressedContent = compressedOut.toByteArray();
-            writeInt(compressedContent.length + 10);    // Content length
-            _out.write(compressedContent);  // Including checksum (last 4 bytes)
-            _out.write(0x51);       // Skip?
-            _out.write(0x4b);       // Skip?
-            _out.write(0x03);       // Skip?
-            _out.write(0x04);       // Skip?
-            writeInt(bytes.length); // decompressedLength
-            _out.write(0x08);
-            _out.write(0x0);
+            writeInt(plan.compressedTextLength + 10);    // Content length
+            _encoder.write(plan.compressedText, 0, plan.compressedTextLength);  // Including checksum (last 4 bytes)
+            writeByte(0x51);       // Skip?
+            writeByte(0x4b);       // Skip?
+            writeByte(0x03);       // Skip?
+            writeByte(0x04);       // Skip?
+            writeInt(plan.textLength); // decompressedLength
+            writeByte(0x08);
+            writeByte(0x0);
         } else if (content instanceof BinaryContent) {
             final BinaryContent binaryContent = (BinaryContent) content;
-            final byte[] bytes = binaryContent.getBytes();
-            writeInt(bytes.length);
+            writeInt(binaryContent.getLength());
             if (binaryContent.isPrecededByZeros()) {
                 writeInt( 0 );
             }
-            _out.write(bytes);
+            writeBinaryContent(binaryContent);
         } else if (content != null) {
             throw new IllegalArgumentException("Unsupported content: " + content);
         }
@@ -358,22 +790,22 @@ public class EwsWriter
 
     private void writeBackgroundMediaForEntry( ScheduleEntry entry) throws IOException {
         if (entry.getBackground() instanceof ImageBackground) {
-            final byte[] bytes = ((ImageBackground) entry.getBackground()).getImage().getBytes();
-            writeInt(bytes.length); // length
-            _out.write(bytes);      // data
+            final BinaryContent image = ((ImageBackground) entry.getBackground()).getImage();
+            writeInt(image.getLength());    // length
+            writeBinaryContent(image);      // data
         } else if (entry.getBackground() instanceof VideoBackground) {
-            final byte[] bytes = ((VideoBackground) entry.getBackground()).getImage().getBytes();
-            writeInt(bytes.length); // length
-            _out.write(bytes);      // data
+            final BinaryContent image = ((VideoBackground) entry.getBackground()).getImage();
+            writeInt(image.getLength());    // length
+            writeBinaryContent(image);      // data
         }
     }
 
     private void writeMediaForEntry(ScheduleEntry entry) throws IOException {
         if (entry.getBackground() instanceof VideoBackground) {
-            final byte[] bytes = ((VideoBackground) entry.getBackground()).getVideo().getBytes();
-            writeInt(bytes.length); // length
+            final BinaryContent video = ((VideoBackground) entry.getBackground()).getVideo();
+            writeInt(video.getLength());    // length
             writeZeroes(4);     // Some types have 4 additional zero bytes. Don't know why.
-            _out.write(bytes);      // data
+            writeBinaryContent(video);      // data
         }
     }
 
@@ -390,7 +822,7 @@ public class EwsWriter
 			throws IOException {
 		writeInt( SCHEDULE_ENTRY_PRESENTATION_HEADER_LENGTH );   // Length of the following header
 		writePaddedString( "$ezwppstream$", 16 );   // Identifier
-		_out.write( 0x02 );
+		writeByte( 0x02 );
 		writeZeroes( 7 );
 		writeInt( entry.getPresentation().getMagicValue());
 
@@ -412,7 +844,7 @@ public class EwsWriter
             writeSlide( slide, contentPointer );
 
             // Math: 1 = 0x01; 4 = contentLength value
-            contentPointer += 1 + 4 + slide.getContent().length;
+            contentPointer += 1 + 4 + slide.getContentLength();
 		}
 
 		for ( final Slide slide : entry.getPresentation().getSlides()) {
@@ -423,88 +855,71 @@ public class EwsWriter
     private void writeSlide( final Slide slide, final int contentPointer )
             throws IOException {
         writeInt( contentPointer );
-        _out.write( slide.getUnknown() );
+        final byte[] unknown = slide.getUnknown();
+        _encoder.write( unknown, 0, unknown.length );
     }
 
     private void writeSlideContentForSlide( final Slide slide )
             throws IOException {
-	    _out.write( 1 );
-	    writeInt( slide.getContent().length );
-    	_out.write( slide.getContent() );
+	    writeByte( 1 );
+	    writeInt( slide.getContentLength() );
+	    writeBinaryContent( slide.getBinaryContent() );
     }
 
-    private void writeZeroes(final int count)
+    /**
+     * Writes the given content without copying it into a byte array first,
+     * e.g. when it is backed by a memory-mapped file.
+     */
+    private void writeBinaryContent(final BinaryContent content)
             throws IOException {
-        for (int i = 0; i < count; i++) {
-            _out.write(0);
+        if (!content.isAvailable()) {
+            if (content.getLength() > 0) {
+                throw new IOException("Content was skipped while parsing and can't be written: " + content);
+            }
+            return;
         }
+
+        _encoder.write(content);
     }
 
-    private void writeString(final String string)
+    private void writeByte(final int b)
             throws IOException {
-        _out.write(string.getBytes(getCharset()));
+        _encoder.putByte(b);
     }
 
-    private void writeTimestamp(final Date date)
+    private void writeZeroes(final int count)
             throws IOException {
-        if (date == null) {
-            writeDouble(0.0);
-        } else {
-            final Calendar calendar = Calendar.getInstance();
-
-            calendar.setTime(date);
-            calendar.set(Calendar.HOUR_OF_DAY, 0);
-            calendar.set(Calendar.MINUTE, 0);
-            calendar.set(Calendar.SECOND, 0);
-            calendar.set(Calendar.MILLISECOND, 0);
-            final Date startOfDay = calendar.getTime();
-
-            // It appears that 1 January 1900 does not compute.
-            calendar.set(1899, Calendar.DECEMBER, 30, 0, 0, 0);
-            final Date epoch = calendar.getTime();
-
-            // TODO: Not accurate for various reasons. Use Joda-Time.
-            final long dateDifference = date.getTime() - epoch.getTime();
-            final long timeDifference = date.getTime() - startOfDay.getTime();
-            final double timestamp = (double) (dateDifference / 86400000L) + (double) timeDifference / 86400000.0;
-
-            writeDouble(timestamp);
-        }
+        _encoder.putZeroes(count);
     }
 
-    private void writeDouble(final double d)
+    private void writeString(final String string)
             throws IOException {
-        writeLong(Double.doubleToLongBits(d));
+        _encoder.putString(string);
     }
 
-    private void writeLong(final long i)
+    private void writeTimestamp(final LocalDateTime timestamp)
             throws IOException {
-        writeInt((int) i);
-        writeInt((int) (i >> 32));
+        _encoder.putDouble(OleDate.toOleDate(timestamp));
     }
 
     private void writeInt(final int i)
             throws IOException {
-        _out.write(i & 0xff);
-        _out.write((i >> 8) & 0xff);
-        _out.write((i >> 16) & 0xff);
-        _out.write((i >> 24) & 0xff);
+        _encoder.putInt(i);
     }
 
     private void writeShort(final int i)
             throws IOException {
-        _out.write(i & 0xff);
-        _out.write((i >> 8) & 0xff);
+        _encoder.putShort(i);
     }
 
+    /**
+     * Writes the given string into a field of the given length. A string that
+     * doesn't fit is truncated, which is reported to the parse listener.
+     */
     private void writePaddedString(final String string, final int length)
             throws IOException {
-        if (string == null) {
-            writeZeroes(length);
-        } else {
-            final byte[] bytes = string.getBytes(getCharset());
-            _out.write(bytes);
-            writeZeroes(length - bytes.length);
+        if (!_encoder.putPaddedString(string, length)) {
+            getParseListener().warning(new ParseWarning(ParseWarning.Kind.TRUNCATED_STRING, -1L, "String is truncated to " + (length - 1) + " bytes: " + string));
         }
     }
 
@@ -656,12 +1071,118 @@ public class EwsWriter
         }
     }
 
-    private int parseColor(Color value) {
-        if (value == null) {
-            return 0;
+    private int parseColor(RgbColor value) {
+        return (value == null) ? 0 : value.getBgr();
+    }
+
+    /**
+     * Presets for the compression of text content.
+     */
+    public enum Compression {
+        /**
+         * Fastest compression, resulting in larger files.
+         */
+        FASTEST(Deflater.BEST_SPEED, Deflater.DEFAULT_STRATEGY),
+
+        /**
+         * Default zlib compression, which balances speed and size.
+         */
+        DEFAULT(Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY),
+
+        /**
+         * Best compression, e.g. for archival.
+         */
+        SMALLEST(Deflater.BEST_COMPRESSION, Deflater.DEFAULT_STRATEGY);
+
+        private final int _level;
+
+        private final int _strategy;
+
+        Compression(final int level, final int strategy) {
+            _level = level;
+            _strategy = strategy;
+        }
+
+        public int getLevel() {
+            return _level;
+        }
+
+        public int getStrategy() {
+            return _strategy;
+        }
+    }
+
+    /**
+     * Layout of an entry in the schedule file, along with its compressed text
+     * content, if any.
+     */
+    static class EntryPlan {
+        final ScheduleEntry entry;
+
+        int contentPointer = 0;
+
+        int mediaContentPointer = 0;
+
+        int contentLength = 0;
+
+        int presentationLength = 0;
+
+        int backgroundLength = 0;
+
+        int mediaLength = 0;
+
+        /**
+         * Compressed text content, including the zlib header and checksum.
+         */
+        byte[] compressedText = null;
+
+        int compressedTextLength = 0;
+
+        /**
+         * Length of the text content before compression.
+         */
+        int textLength = 0;
+
+        /**
+         * Original data of the entry, which is written instead of the
+         * entry itself; {@code null} to write the entry.
+         */
+        RawEntry raw = null;
+
+        EntryPlan(final ScheduleEntry entry) {
+            this.entry = entry;
+        }
+
+        /**
+         * Sets the position of the content of the entry, which determines
+         * the position of its media.
+         */
+        void setContentPointer(final int contentPointer) {
+            this.contentPointer = contentPointer;
+            if (raw != null) {
+                mediaContentPointer = raw.relocateMediaContentPointer(contentPointer);
+            } else if (entry.getBackground() instanceof VideoBackground) {
+                mediaContentPointer = contentPointer + contentLength + backgroundLength;
+            } else if (entry.getType() == ScheduleEntry.Type.PRESENTATION) {
+                mediaContentPointer = contentPointer;
+            }
+        }
+
+        /**
+         * Returns whether the entry record contains a media content pointer.
+         */
+        boolean hasMediaContentPointer() {
+            if (raw != null) {
+                return raw.hasMediaContentPointer();
+            }
+            return entry.getBackground() instanceof VideoBackground || entry.getType() == ScheduleEntry.Type.PRESENTATION;
+        }
+
+        /**
+         * Returns the combined length of all blocks of the entry.
+         */
+        long getLength() {
+            return (long) contentLength + presentationLength + backgroundLength + mediaLength;
         }
-        return (value.getBlue() << 16) |
-               (value.getGreen() << 8) |
-               (value.getRed());
     }
 }
@@ -26,14 +26,19 @@ import java.awt.*;
 public class GradientBackground
 	implements Background
 {
-	private Color _color1;
+	private RgbColor _color1;
 
-	private Color _color2;
+	private RgbColor _color2;
 
 	private ScheduleEntry.GradientStyle _style;
 
 	private ScheduleEntry.GradientVariant _variant;
 
+	/**
+	 * Whether the background was changed since {@link #clearModified()}.
+	 */
+	private boolean _modified = false;
+
 	/**
 	 * Constructs a new instance.
 	 */
@@ -41,29 +46,76 @@ public class GradientBackground
 	{
 	}
 
-	public void setColor1( Color color1 )
+	public void setRgbColor1( RgbColor color1 )
 	{
 		_color1 = color1;
+		_modified = true;
 	}
 
-	public Color getColor1()
+	public RgbColor getRgbColor1()
 	{
 		return _color1;
 	}
 
-	public void setColor2( Color color2 )
+	public void setRgbColor2( RgbColor color2 )
 	{
 		_color2 = color2;
+		_modified = true;
 	}
 
-	public Color getColor2()
+	public RgbColor getRgbColor2()
 	{
 		return _color2;
 	}
 
+	/**
+	 * Sets the first color of the gradient.
+	 *
+	 * @param color1 Color to be set.
+	 *
+	 * @see AwtColors#fromAwt(Color)
+	 */
+	public void setColor1( Color color1 )
+	{
+		setRgbColor1( AwtColors.fromAwt( color1 ) );
+	}
+
+	/**
+	 * Returns the first color of the gradient, as a new AWT color.
+	 *
+	 * @return First color.
+	 */
+	public Color getColor1()
+	{
+		return AwtColors.toAwt( getRgbColor1() );
+	}
+
+	/**
+	 * Sets the second color of the gradient.
+	 *
+	 * @param color2 Color to be set.
+	 *
+	 * @see AwtColors#fromAwt(Color)
+	 */
+	public void setColor2( Color color2 )
+	{
+		setRgbColor2( AwtColors.fromAwt( color2 ) );
+	}
+
+	/**
+	 * Returns the second color of the gradient, as a new AWT color.
+	 *
+	 * @return Second color.
+	 */
+	public Color getColor2()
+	{
+		return AwtColors.toAwt( getRgbColor2() );
+	}
+
 	public void setStyle( ScheduleEntry.GradientStyle style )
 	{
 		_style = style;
+		_modified = true;
 	}
 
 	public ScheduleEntry.GradientStyle getStyle()
@@ -74,10 +126,28 @@ public class GradientBackground
 	public void setVariant( ScheduleEntry.GradientVariant variant )
 	{
 		_variant = variant;
+		_modified = true;
 	}
 
 	public ScheduleEntry.GradientVariant getVariant()
 	{
 		return _variant;
 	}
+
+	/**
+	 * Returns whether the background was changed since the last call to
+	 * {@link #clearModified()}.
+	 */
+	boolean isModified()
+	{
+		return _modified;
+	}
+
+	/**
+	 * Marks the background as unmodified.
+	 */
+	void clearModified()
+	{
+		_modified = false;
+	}
 }
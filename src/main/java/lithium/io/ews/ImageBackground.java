@@ -31,6 +31,11 @@ public class ImageBackground
 
     private ScheduleEntry.AspectRatio _aspectRatio = ScheduleEntry.AspectRatio.STRETCH;
 
+    /**
+     * Whether the background was changed since {@link #clearModified()}.
+     */
+    private boolean _modified = false;
+
     /**
      * Constructs a new instance.
      */
@@ -49,6 +54,7 @@ public class ImageBackground
 
     public void setName(String name) {
         _name = name;
+        _modified = true;
     }
 
     public String getName() {
@@ -57,6 +63,7 @@ public class ImageBackground
 
     public void setImage(BinaryContent image) {
         _image = image;
+        _modified = true;
     }
 
     public BinaryContent getImage() {
@@ -65,6 +72,7 @@ public class ImageBackground
 
     public void setTiled(boolean tiled) {
         _tiled = tiled;
+        _modified = true;
     }
 
     public boolean isTiled() {
@@ -73,12 +81,31 @@ public class ImageBackground
 
     public void setAspectRatio(ScheduleEntry.AspectRatio aspectRatio) {
         _aspectRatio = aspectRatio;
+        _modified = true;
     }
 
     public ScheduleEntry.AspectRatio getAspectRatio() {
         return _aspectRatio;
     }
 
+    /**
+     * Returns whether the background was changed since the last call to
+     * {@link #clearModified()}.
+     */
+    boolean isModified() {
+        return _modified || (_image != null && _image.isModified());
+    }
+
+    /**
+     * Marks the background as unmodified.
+     */
+    void clearModified() {
+        _modified = false;
+        if (_image != null) {
+            _image.clearModified();
+        }
+    }
+
     @Override
     public String toString() {
         return super.toString() + "[name=" + _name + ",tiled=" + _tiled + ",aspectRatio=" + _aspectRatio + "]";
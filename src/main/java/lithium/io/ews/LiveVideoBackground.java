@@ -28,6 +28,11 @@ public class LiveVideoBackground
 
 	private ScheduleEntry.AspectRatio _aspectRatio;
 
+	/**
+	 * Whether the background was changed since {@link #clearModified()}.
+	 */
+	private boolean _modified = false;
+
 	/**
 	 * Constructs a new instance.
 	 */
@@ -38,6 +43,7 @@ public class LiveVideoBackground
 	public void setName( String name )
 	{
 		_name = name;
+		_modified = true;
 	}
 
 	public String getName()
@@ -48,10 +54,28 @@ public class LiveVideoBackground
 	public void setAspectRatio( ScheduleEntry.AspectRatio aspectRatio )
 	{
 		_aspectRatio = aspectRatio;
+		_modified = true;
 	}
 
 	public ScheduleEntry.AspectRatio getAspectRatio()
 	{
 		return _aspectRatio;
 	}
+
+	/**
+	 * Returns whether the background was changed since the last call to
+	 * {@link #clearModified()}.
+	 */
+	boolean isModified()
+	{
+		return _modified;
+	}
+
+	/**
+	 * Marks the background as unmodified.
+	 */
+	void clearModified()
+	{
+		_modified = false;
+	}
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io.ews;
+
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+/**
+ * Shares {@link BinaryContent} instances between identical media blocks
+ * within a single schedule, for {@link ParseOptions#setDeduplicateMedia}.
+ *
+ * <p>Media is first matched by its offset in the file, which is cheap and
+ * covers entries that point to the same block. Loaded media is then matched
+ * by its CRC-32 and length, after which the data is compared to rule out
+ * collisions. Media that is skipped or deferred is only matched by offset,
+ * since its data is not available while parsing.
+ *
+ * <p>Instances are safe for use by multiple threads.
+ *
+ * @author Gerrit Meinders
+ */
+class MediaCache
+{
+	/**
+	 * Media by policy and offset in the file.
+	 */
+	private final Map<ParseOptions.MediaPolicy, ConcurrentMap<Long, BinaryContent>> _byOffset;
+
+	/**
+	 * Loaded media by length and CRC-32. Lists are only accessed while
+	 * synchronized on the map.
+	 */
+	private final Map<Long, List<BinaryContent>> _byChecksum = new HashMap<Long, List<BinaryContent>>();
+
+	/**
+	 * Constructs a new instance.
+	 */
+	MediaCache()
+	{
+		_byOffset = new EnumMap<ParseOptions.MediaPolicy, ConcurrentMap<Long, BinaryContent>>( ParseOptions.MediaPolicy.class );
+		for ( final ParseOptions.MediaPolicy policy : ParseOptions.MediaPolicy.values() )
+		{
+			_byOffset.put( policy, new ConcurrentHashMap<Long, BinaryContent>() );
+		}
+	}
+
+	/**
+	 * Returns the media previously parsed at the given offset.
+	 *
+	 * @param policy Policy the media was parsed with.
+	 * @param offset Offset of the media in the file.
+	 *
+	 * @return Binary content; {@code null} if not found.
+	 */
+	BinaryContent get( final ParseOptions.MediaPolicy policy, final long offset )
+	{
+		return _byOffset.get( policy ).get( offset );
+	}
+
+	/**
+	 * Returns an instance equivalent to the given newly parsed media, which
+	 * is the given instance itself if no equivalent media was parsed before.
+	 *
+	 * @param policy  Policy the media was parsed with.
+	 * @param content Newly parsed media.
+	 *
+	 * @return Shared binary content.
+	 */
+	BinaryContent share( final ParseOptions.MediaPolicy policy, final BinaryContent content )
+	{
+		BinaryContent result = content;
+		if ( content.isLoaded() )
+		{
+			result = shareLoaded( content );
+		}
+
+		final BinaryContent previous = _byOffset.get( policy ).putIfAbsent( content.getOffset(), result );
+		return ( previous == null ) ? result : previous;
+	}
+
+	private BinaryContent shareLoaded( final BinaryContent content )
+	{
+		final ByteBuffer data = content.getBuffer();
+		final CRC32 crc = new CRC32();
+		crc.update( data.duplicate() );
+		final Long key = ( (long)data.remaining() << 32 ) | crc.getValue();
+
+		synchronized ( _byChecksum )
+		{
+			List<BinaryContent> candidates = _byChecksum.get( key );
+			if ( candidates == null )
+			{
+				candidates = new ArrayList<BinaryContent>( 1 );
+				_byChecksum.put( key, candidates );
+			}
+
+			for ( final BinaryContent candidate : candidates )
+			{
+				if ( candidate.isPrecededByZeros() == content.isPrecededByZeros() &&
+				     candidate.getBuffer().equals( data ) )
+				{
+					return candidate;
+				}
+			}
+
+			candidates.add( content );
+		}
+		return content;
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io.ews;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+/**
+ * Reads embedded media on demand, for {@link ParseOptions.MediaPolicy#DEFER}.
+ *
+ * @author Gerrit Meinders
+ */
+interface MediaLoader
+{
+	/**
+	 * Reads the specified range of the schedule file.
+	 *
+	 * @param offset Offset of the media in the file.
+	 * @param length Length of the media.
+	 *
+	 * @return Buffer containing the media.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	ByteBuffer load( long offset, int length )
+		throws IOException;
+
+	/**
+	 * Returns whether parsed content may refer to the buffer being parsed,
+	 * instead of being copied. This is the case for buffers owned by the
+	 * parser, like a mapped file, but not for a buffer provided by the
+	 * caller, which may be reused after parsing.
+	 *
+	 * @return {@code true} if the buffer may be shared.
+	 */
+	default boolean isBufferShared()
+	{
+		return true;
+	}
+
+	/**
+	 * Writes the specified range of the schedule file to the given channel.
+	 * By default, the range is loaded first. Loaders that read from a file
+	 * may transfer the data directly instead, without copying it to the heap.
+	 *
+	 * @param offset Offset of the media in the file.
+	 * @param length Length of the media.
+	 * @param target Channel to write to.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	default void transferTo( final long offset, final int length, final WritableByteChannel target )
+		throws IOException
+	{
+		Tools.writeFully( target, load( offset, length ) );
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io.ews;
+
+import java.time.*;
+
+/**
+ * Converts between OLE automation dates and {@link LocalDateTime}. An OLE
+ * automation date is the number of days since 30 December 1899, with the
+ * time of day as the fractional part. Before the epoch, the fraction still
+ * counts forward from midnight, e.g. -1.25 is 29 December 1899, 6:00.
+ *
+ * <p>Times are rounded to whole milliseconds, such that any value written by
+ * {@link #toOleDate} is parsed to the same date and time.
+ *
+ * @author Gerrit Meinders
+ */
+final class OleDate
+{
+	private static final long MILLIS_PER_DAY = 86400000L;
+
+	/**
+	 * Start of the epoch, 30 December 1899, in milliseconds since 1 January
+	 * 1970. (It appears that 1 January 1900 does not compute.)
+	 */
+	private static final long EPOCH_MILLIS = LocalDate.of( 1899, 12, 30 ).toEpochDay() * MILLIS_PER_DAY;
+
+	private OleDate()
+	{
+	}
+
+	/**
+	 * Converts the given OLE automation date.
+	 *
+	 * @param oleDate OLE automation date.
+	 *
+	 * @return Local date and time; {@code null} if the value is zero.
+	 */
+	static LocalDateTime toLocalDateTime( final double oleDate )
+	{
+		if ( oleDate == 0.0 )
+		{
+			return null;
+		}
+
+		final long days = (long)oleDate;
+		final long millisOfDay = Math.round( Math.abs( oleDate - (double)days ) * (double)MILLIS_PER_DAY );
+		final long millis = EPOCH_MILLIS + days * MILLIS_PER_DAY + millisOfDay;
+		return LocalDateTime.ofEpochSecond( Math.floorDiv( millis, 1000L ), (int)Math.floorMod( millis, 1000L ) * 1000000, ZoneOffset.UTC );
+	}
+
+	/**
+	 * Converts the given date and time to an OLE automation date.
+	 *
+	 * @param dateTime Local date and time; may be {@code null}.
+	 *
+	 * @return OLE automation date; zero for {@code null}.
+	 */
+	static double toOleDate( final LocalDateTime dateTime )
+	{
+		if ( dateTime == null )
+		{
+			return 0.0;
+		}
+
+		final long millis = dateTime.toEpochSecond( ZoneOffset.UTC ) * 1000L + (long)( dateTime.getNano() / 1000000 );
+		final long days = Math.floorDiv( millis - EPOCH_MILLIS, MILLIS_PER_DAY );
+		final long millisOfDay = Math.floorMod( millis - EPOCH_MILLIS, MILLIS_PER_DAY );
+		final double fraction = (double)millisOfDay / (double)MILLIS_PER_DAY;
+		return ( days < 0 ) ? (double)days - fraction : (double)days + fraction;
+	}
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io.ews;
+
+/**
+ * Specifies how {@link EwsParser} handles embedded media. Each category of
+ * media has its own {@link MediaPolicy}; by default, all media is loaded.
+ *
+ * <p>For example, to read only text content and meta data:
+ * <pre>
+ * final ParseOptions options = new ParseOptions();
+ * options.setAllMedia( ParseOptions.MediaPolicy.SKIP );
+ * parser.setOptions( options );
+ * </pre>
+ *
+ * @author Gerrit Meinders
+ */
+public class ParseOptions
+{
+	/**
+	 * Content of entries other than songs and scripture, e.g. videos, images
+	 * and presentation files.
+	 */
+	private MediaPolicy _content = MediaPolicy.LOAD;
+
+	/**
+	 * Images of image backgrounds.
+	 */
+	private MediaPolicy _backgroundImage = MediaPolicy.LOAD;
+
+	/**
+	 * Videos of video backgrounds.
+	 */
+	private MediaPolicy _backgroundVideo = MediaPolicy.LOAD;
+
+	/**
+	 * Thumbnails of video entries and preview images of video backgrounds.
+	 */
+	private MediaPolicy _thumbnail = MediaPolicy.LOAD;
+
+	/**
+	 * Slide previews of presentations.
+	 */
+	private MediaPolicy _slides = MediaPolicy.LOAD;
+
+	/**
+	 * Whether identical media blocks share a single instance.
+	 */
+	private boolean _deduplicateMedia = false;
+
+	/**
+	 * Whether the original data of each entry is kept.
+	 */
+	private boolean _keepRawData = false;
+
+	/**
+	 * Constructs a new instance that loads all media.
+	 */
+	public ParseOptions()
+	{
+	}
+
+	/**
+	 * Sets the policy for all categories of media.
+	 *
+	 * @param policy Policy to be set.
+	 */
+	public void setAllMedia( final MediaPolicy policy )
+	{
+		setContent( policy );
+		setBackgroundImage( policy );
+		setBackgroundVideo( policy );
+		setThumbnail( policy );
+		setSlides( policy );
+	}
+
+	public MediaPolicy getContent()
+	{
+		return _content;
+	}
+
+	public void setContent( final MediaPolicy content )
+	{
+		_content = requireNonNull( content );
+	}
+
+	public MediaPolicy getBackgroundImage()
+	{
+		return _backgroundImage;
+	}
+
+	public void setBackgroundImage( final MediaPolicy backgroundImage )
+	{
+		_backgroundImage = requireNonNull( backgroundImage );
+	}
+
+	public MediaPolicy getBackgroundVideo()
+	{
+		return _backgroundVideo;
+	}
+
+	public void setBackgroundVideo( final MediaPolicy backgroundVideo )
+	{
+		_backgroundVideo = requireNonNull( backgroundVideo );
+	}
+
+	public MediaPolicy getThumbnail()
+	{
+		return _thumbnail;
+	}
+
+	public void setThumbnail( final MediaPolicy thumbnail )
+	{
+		_thumbnail = requireNonNull( thumbnail );
+	}
+
+	public MediaPolicy getSlides()
+	{
+		return _slides;
+	}
+
+	public void setSlides( final MediaPolicy slides )
+	{
+		_slides = requireNonNull( slides );
+	}
+
+	public boolean isDeduplicateMedia()
+	{
+		return _deduplicateMedia;
+	}
+
+	/**
+	 * Sets whether identical media blocks within a schedule, e.g. a background
+	 * image used by many entries, share a single {@link BinaryContent}
+	 * instance. Media is matched by its position in the file first and, if
+	 * loaded, by its data. Slide previews are not deduplicated.
+	 *
+	 * <p>Since shared instances appear in multiple entries, modifying the
+	 * content of one entry may affect others. Replace the content instead.
+	 *
+	 * @param deduplicateMedia {@code true} to share identical media.
+	 */
+	public void setDeduplicateMedia( final boolean deduplicateMedia )
+	{
+		_deduplicateMedia = deduplicateMedia;
+	}
+
+	public boolean isKeepRawData()
+	{
+		return _keepRawData;
+	}
+
+	/**
+	 * Sets whether each parsed entry keeps its original entry record and
+	 * content. When the schedule is written, entries that were not modified
+	 * are then copied verbatim, without compressing their text again and
+	 * including any fields that are not part of the model. Only their
+	 * pointers are adjusted. See {@link ScheduleEntry#isModified()}.
+	 *
+	 * <p>This only applies to version 5 schedules, and only to entries that
+	 * store their content in a single contiguous range. The original content
+	 * is retained along with the entry, even if media is skipped or deferred.
+	 * When parsing a file, the original data refers to the mapped file, which
+	 * must then not be overwritten before the schedule is written; see {@link
+	 * EwsParser#parse(java.nio.file.Path)}.
+	 *
+	 * @param keepRawData {@code true} to keep the original data.
+	 */
+	public void setKeepRawData( final boolean keepRawData )
+	{
+		_keepRawData = keepRawData;
+	}
+
+	private static MediaPolicy requireNonNull( final MediaPolicy policy )
+	{
+		if ( policy == null )
+		{
+			throw new NullPointerException( "policy" );
+		}
+		return policy;
+	}
+
+	/**
+	 * Specifies how a category of embedded media is handled.
+	 */
+	public enum MediaPolicy
+	{
+		/**
+		 * Media is read while parsing. This is the default.
+		 */
+		LOAD,
+
+		/**
+		 * Media is not read. Only its offset and length are available from
+		 * {@link BinaryContent}, which has no data.
+		 */
+		SKIP,
+
+		/**
+		 * Media is read on demand, when the data of the {@link BinaryContent}
+		 * is first accessed. When parsing a {@link java.nio.file.Path}, the
+		 * file is opened again for this purpose, so it must not be modified
+		 * or removed in the mean time.
+		 */
+		DEFER
+	}
+}
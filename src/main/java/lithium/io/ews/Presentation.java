@@ -27,8 +27,17 @@ import java.util.*;
  */
 public class Presentation
 {
+	/**
+	 * Slides of the presentation. Slides that are not decoded yet are {@code
+	 * null}.
+	 */
 	private final List<Slide> _slides = new ArrayList<Slide>();
 
+	/**
+	 * Decodes slides on demand; {@code null} if all slides are decoded.
+	 */
+	private SlideDecoder _decoder = null;
+
 	/**
 	 * Unknown header content.
 	 */
@@ -36,6 +45,11 @@ public class Presentation
 
 	private int magicValue = 0;
 
+	/**
+	 * Whether the presentation was changed since {@link #clearModified()}.
+	 */
+	private boolean _modified = false;
+
 	/**
 	 * Constructs a new instance.
 	 */
@@ -43,19 +57,83 @@ public class Presentation
 	{
 	}
 
-	public void addSlide( Slide slide )
+	/**
+	 * Sets a decoder for slides that were not parsed yet, which is called on
+	 * demand.
+	 *
+	 * @param decoder Slide decoder.
+	 */
+	void setSlideDecoder( final SlideDecoder decoder )
+	{
+		_slides.clear();
+		_slides.addAll( Collections.<Slide>nCopies( decoder.getSlideCount(), null ) );
+		_decoder = decoder;
+	}
+
+	public synchronized void addSlide( Slide slide )
 	{
 		_slides.add( slide );
+		_modified = true;
+	}
+
+	/**
+	 * Returns the number of slides, without decoding any.
+	 *
+	 * @return Number of slides.
+	 */
+	public synchronized int getSlideCount()
+	{
+		return _slides.size();
+	}
+
+	/**
+	 * Returns the specified slide, decoding it first if needed. Other slides
+	 * are not decoded.
+	 *
+	 * @param index Index of the slide.
+	 *
+	 * @return Slide.
+	 */
+	public synchronized Slide slide( final int index )
+	{
+		Slide result = _slides.get( index );
+		if ( result == null && _decoder != null )
+		{
+			result = _decoder.decode( index );
+			result.clearModified();
+			_slides.set( index, result );
+		}
+		return result;
 	}
 
+	/**
+	 * Returns all slides. Slides are decoded when they are first accessed
+	 * through the returned list.
+	 *
+	 * @return Slides.
+	 */
 	public List<Slide> getSlides()
 	{
-		return Collections.unmodifiableList( _slides );
+		return new AbstractList<Slide>()
+		{
+			@Override
+			public Slide get( final int index )
+			{
+				return slide( index );
+			}
+
+			@Override
+			public int size()
+			{
+				return getSlideCount();
+			}
+		};
 	}
 
 	public void setUnknown( byte[] unknown )
 	{
 		_unknown = unknown;
+		_modified = true;
 	}
 
 	public byte[] getUnknown()
@@ -63,6 +141,64 @@ public class Presentation
 		return _unknown;
 	}
 
+	/**
+	 * Returns whether the presentation or any of its decoded slides was
+	 * changed since the last call to {@link #clearModified()}. Slides that
+	 * aren't decoded are unmodified, so none are decoded by this method.
+	 */
+	synchronized boolean isModified()
+	{
+		if ( _modified )
+		{
+			return true;
+		}
+		for ( final Slide slide : _slides )
+		{
+			if ( slide != null && slide.isModified() )
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Marks the presentation and its decoded slides as unmodified.
+	 */
+	synchronized void clearModified()
+	{
+		_modified = false;
+		for ( final Slide slide : _slides )
+		{
+			if ( slide != null )
+			{
+				slide.clearModified();
+			}
+		}
+	}
+
+	/**
+	 * Decodes the slides of a parsed presentation on demand.
+	 */
+	interface SlideDecoder
+	{
+		/**
+		 * Returns the number of slides.
+		 *
+		 * @return Number of slides.
+		 */
+		int getSlideCount();
+
+		/**
+		 * Decodes the specified slide.
+		 *
+		 * @param index Index of the slide.
+		 *
+		 * @return Slide.
+		 */
+		Slide decode( int index );
+	}
+
 	public int getMagicValue()
 	{
 		return magicValue;
@@ -71,5 +207,6 @@ public class Presentation
 	public void setMagicValue( final int magicValue )
 	{
 		this.magicValue = magicValue;
+		_modified = true;
 	}
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io.ews;
+
+import java.nio.*;
+import java.nio.charset.*;
+
+/**
+ * Original data of a parsed schedule entry, which allows {@link EwsWriter} to
+ * copy an unmodified entry verbatim, including any fields that aren't part of
+ * the model. Only the absolute pointers in the entry record are adjusted when
+ * the entry is written at a different position.
+ *
+ * @author Gerrit Meinders
+ * @see ParseOptions#setKeepRawData
+ */
+class RawEntry
+{
+	/**
+	 * Entry record, which is always {@link EwsWriter#SCHEDULE_ENTRY_LENGTH}
+	 * bytes long.
+	 */
+	private final ByteBuffer _record;
+
+	/**
+	 * All blocks of content of the entry, which are stored contiguously,
+	 * starting at the content pointer.
+	 */
+	private final ByteBuffer _content;
+
+	/**
+	 * Original content pointer.
+	 */
+	private final int _contentPointer;
+
+	/**
+	 * Original media content pointer; {@code 0} if not set.
+	 */
+	private final int _mediaContentPointer;
+
+	/**
+	 * Character set of the strings in the record.
+	 */
+	private final Charset _charset;
+
+	/**
+	 * Constructs a new instance.
+	 *
+	 * @param record              Entry record.
+	 * @param content             Content of the entry.
+	 * @param contentPointer      Original content pointer.
+	 * @param mediaContentPointer Original media content pointer.
+	 * @param charset             Character set of the strings in the record.
+	 */
+	RawEntry( final ByteBuffer record, final ByteBuffer content, final int contentPointer, final int mediaContentPointer, final Charset charset )
+	{
+		_record = record;
+		_content = content;
+		_contentPointer = contentPointer;
+		_mediaContentPointer = mediaContentPointer;
+		_charset = charset;
+	}
+
+	/**
+	 * Returns the entry record. The returned buffer must not be modified.
+	 *
+	 * @return Entry record.
+	 */
+	ByteBuffer getRecord()
+	{
+		return _record.duplicate();
+	}
+
+	/**
+	 * Returns the content of the entry. The returned buffer must not be
+	 * modified.
+	 *
+	 * @return Content of the entry.
+	 */
+	ByteBuffer getContent()
+	{
+		return _content.duplicate();
+	}
+
+	int getContentLength()
+	{
+		return _content.remaining();
+	}
+
+	/**
+	 * Returns whether the entry record contains a media content pointer.
+	 *
+	 * @return {@code true} if the media content pointer is set.
+	 */
+	boolean hasMediaContentPointer()
+	{
+		return _mediaContentPointer > 0;
+	}
+
+	/**
+	 * Returns the media content pointer for the entry when its content is
+	 * moved to the given position.
+	 *
+	 * @param contentPointer New content pointer.
+	 *
+	 * @return New media content pointer; {@code 0} if not set.
+	 */
+	int relocateMediaContentPointer( final int contentPointer )
+	{
+		return hasMediaContentPointer() ? contentPointer + ( _mediaContentPointer - _contentPointer ) : 0;
+	}
+
+	Charset getCharset()
+	{
+		return _charset;
+	}
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io.ews;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+
+/**
+ * Encodes little-endian values into a buffer, which is written to an output
+ * stream or channel in bulk whenever it is full. The buffer must be large
+ * enough to hold an entire entry record, such that each record is written in
+ * a single call.
+ *
+ * <p>When writing to a channel, large content is not copied into the buffer.
+ * Instead, it is written along with any buffered values using a gathering
+ * write, or transferred directly from its source file.
+ *
+ * @author Gerrit Meinders
+ */
+class RecordEncoder {
+    /**
+     * Minimum capacity of the buffer.
+     */
+    static final int MINIMUM_CAPACITY = 0x800;
+
+    /**
+     * Default capacity of the buffer.
+     */
+    static final int DEFAULT_CAPACITY = 0x10000;
+
+    private final ByteBuffer _buffer;
+
+    /**
+     * Stream to write to; {@code null} when writing to a channel.
+     */
+    private final OutputStream _out;
+
+    /**
+     * Channel to write to; {@code null} when writing to a stream.
+     */
+    private final WritableByteChannel _channel;
+
+    private final CharsetEncoder _encoder;
+
+    /**
+     * Used to copy a direct buffer to the output stream; created on demand.
+     */
+    private byte[] _transfer = null;
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param buffer  Buffer to encode values into; any content is discarded.
+     * @param out     Stream to write encoded values to.
+     * @param charset Character set used to encode strings.
+     */
+    RecordEncoder(final ByteBuffer buffer, final OutputStream out, final Charset charset) {
+        this(buffer, out, null, charset);
+    }
+
+    /**
+     * Constructs a new instance.
+     *
+     * @param buffer  Buffer to encode values into; any content is discarded.
+     * @param channel Channel to write encoded values to.
+     * @param charset Character set used to encode strings.
+     */
+    RecordEncoder(final ByteBuffer buffer, final WritableByteChannel channel, final Charset charset) {
+        this(buffer, null, channel, charset);
+    }
+
+    private RecordEncoder(final ByteBuffer buffer, final OutputStream out, final WritableByteChannel channel, final Charset charset) {
+        if (buffer.capacity() < MINIMUM_CAPACITY) {
+            throw new IllegalArgumentException("Buffer capacity must be at least " + MINIMUM_CAPACITY + ", but was " + buffer.capacity());
+        }
+        if (buffer.isReadOnly()) {
+            throw new ReadOnlyBufferException();
+        }
+
+        _buffer = buffer;
+        _buffer.clear();
+        _buffer.order(ByteOrder.LITTLE_ENDIAN);
+        _out = out;
+        _channel = channel;
+        _encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    void putByte(final int b) throws IOException {
+        ensureRemaining(1);
+        _buffer.put((byte) b);
+    }
+
+    void putShort(final int s) throws IOException {
+        ensureRemaining(2);
+        _buffer.putShort((short) s);
+    }
+
+    void putInt(final int i) throws IOException {
+        ensureRemaining(4);
+        _buffer.putInt(i);
+    }
+
+    void putLong(final long l) throws IOException {
+        ensureRemaining(8);
+        _buffer.putLong(l);
+    }
+
+    void putDouble(final double d) throws IOException {
+        ensureRemaining(8);
+        _buffer.putDouble(d);
+    }
+
+    void putZeroes(final int count) throws IOException {
+        int remaining = count;
+        while (remaining > 0) {
+            if (!_buffer.hasRemaining()) {
+                flush();
+            }
+            final int length = Math.min(remaining, _buffer.remaining());
+            fillZeroes(length);
+            remaining -= length;
+        }
+    }
+
+    /**
+     * Encodes the given string without a terminator.
+     *
+     * @param string String to be encoded.
+     */
+    void putString(final String string) throws IOException {
+        final int maximumLength = (int) Math.ceil(string.length() * (double) _encoder.maxBytesPerChar());
+        ensureRemaining(maximumLength);
+        encode(string);
+    }
+
+    /**
+     * Encodes the given string into a field of the given length, padded with
+     * null characters. A string that doesn't fit is truncated, such that the
+     * field always ends with a null character.
+     *
+     * @param string String to be encoded; may be {@code null}.
+     * @param length Length of the field.
+     *
+     * @return {@code true} if the string fit; {@code false} if it was
+     * truncated.
+     */
+    boolean putPaddedString(final String string, final int length) throws IOException {
+        ensureRemaining(length);
+        final int end = _buffer.position() + length;
+        boolean result = true;
+        if (string != null && !string.isEmpty()) {
+            final int limit = _buffer.limit();
+            _buffer.limit(end - 1);
+            result = !encode(string).isOverflow();
+            _buffer.limit(limit);
+        }
+        fillZeroes(end - _buffer.position());
+        return result;
+    }
+
+    /**
+     * Writes the given bytes. Large arrays are written directly, after any
+     * buffered values.
+     */
+    void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (length <= _buffer.remaining()) {
+            _buffer.put(bytes, offset, length);
+        } else if (_channel != null) {
+            write(ByteBuffer.wrap(bytes, offset, length));
+        } else {
+            flush();
+            _out.write(bytes, offset, length);
+        }
+    }
+
+    /**
+     * Writes the remaining content of the given buffer, without changing its
+     * position.
+     */
+    void write(final ByteBuffer content) throws IOException {
+        if (content.remaining() <= _buffer.remaining()) {
+            _buffer.put(content.duplicate());
+        } else if (_channel != null) {
+            writeGathering(content.duplicate());
+        } else if (content.hasArray()) {
+            flush();
+            _out.write(content.array(), content.arrayOffset() + content.position(), content.remaining());
+        } else {
+            // Copy through the encoder's own buffer.
+            final ByteBuffer source = content.duplicate();
+            while (source.hasRemaining()) {
+                if (!_buffer.hasRemaining()) {
+                    flush();
+                }
+                final int length = Math.min(source.remaining(), _buffer.remaining());
+                final ByteBuffer chunk = source.duplicate();
+                chunk.limit(chunk.position() + length);
+                _buffer.put(chunk);
+                source.position(source.position() + length);
+            }
+        }
+    }
+
+    /**
+     * Writes the given content. When writing to a channel, content that is
+     * deferred is transferred from its source without loading it.
+     *
+     * @param content Content to be written, which must be available.
+     */
+    void write(final BinaryContent content) throws IOException {
+        if (_channel != null && !content.isLoaded() && content.getLength() > _buffer.remaining()) {
+            flush();
+            content.writeTo(_channel);
+        } else {
+            write(content.getBuffer());
+        }
+    }
+
+    /**
+     * Writes any buffered values.
+     */
+    void flush() throws IOException {
+        _buffer.flip();
+        if (_channel != null) {
+            Tools.writeFully(_channel, _buffer);
+        } else if (_buffer.hasArray()) {
+            _out.write(_buffer.array(), _buffer.arrayOffset(), _buffer.remaining());
+        } else {
+            if (_transfer == null) {
+                _transfer = new byte[Math.min(_buffer.capacity(), 0x2000)];
+            }
+            while (_buffer.hasRemaining()) {
+                final int length = Math.min(_buffer.remaining(), _transfer.length);
+                _buffer.get(_transfer, 0, length);
+                _out.write(_transfer, 0, length);
+            }
+        }
+        _buffer.clear();
+    }
+
+    /**
+     * Writes any buffered values followed by the given content to the
+     * channel, in a single call if the channel supports it.
+     */
+    private void writeGathering(final ByteBuffer content) throws IOException {
+        if (_channel instanceof GatheringByteChannel) {
+            _buffer.flip();
+            final ByteBuffer[] buffers = {_buffer, content};
+            final GatheringByteChannel channel = (GatheringByteChannel) _channel;
+            while (content.hasRemaining()) {
+                channel.write(buffers);
+            }
+            _buffer.clear();
+        } else {
+            flush();
+            Tools.writeFully(_channel, content);
+        }
+    }
+
+    private void ensureRemaining(final int length) throws IOException {
+        if (_buffer.remaining() < length) {
+            flush();
+            if (_buffer.remaining() < length) {
+                throw new IOException("Value of " + length + " bytes does not fit in buffer of " + _buffer.capacity() + " bytes");
+            }
+        }
+    }
+
+    private CoderResult encode(final String string) {
+        _encoder.reset();
+        final CoderResult result = _encoder.encode(CharBuffer.wrap(string), _buffer, true);
+        return result.isOverflow() ? result : _encoder.flush(_buffer);
+    }
+
+    private void fillZeroes(final int length) {
+        int remaining = length;
+        for (; remaining >= 8; remaining -= 8) {
+            _buffer.putLong(0L);
+        }
+        for (; remaining > 0; remaining--) {
+            _buffer.put((byte) 0);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io.ews;
+
+/**
+ * An opaque RGB color, packed into a single {@code int}. Unlike {@link
+ * java.awt.Color}, using this class doesn't load any AWT classes. Use {@link
+ * AwtColors} to convert between the two.
+ *
+ * @author Gerrit Meinders
+ */
+public final class RgbColor
+{
+	public static final RgbColor BLACK = new RgbColor( 0x000000 );
+
+	public static final RgbColor WHITE = new RgbColor( 0xffffff );
+
+	/**
+	 * Color as {@code 0xRRGGBB}.
+	 */
+	private final int _rgb;
+
+	private RgbColor( final int rgb )
+	{
+		_rgb = rgb;
+	}
+
+	/**
+	 * Returns the color with the given components.
+	 *
+	 * @param red   Red component, from 0 to 255.
+	 * @param green Green component, from 0 to 255.
+	 * @param blue  Blue component, from 0 to 255.
+	 *
+	 * @return Color.
+	 */
+	public static RgbColor of( final int red, final int green, final int blue )
+	{
+		if ( ( ( red | green | blue ) & ~0xff ) != 0 )
+		{
+			throw new IllegalArgumentException( "Component out of range: " + red + ", " + green + ", " + blue );
+		}
+		return fromRgb( red << 16 | green << 8 | blue );
+	}
+
+	/**
+	 * Returns the color with the given RGB value, as used by {@link
+	 * java.awt.Color#getRGB()}. The alpha component, if any, is ignored.
+	 *
+	 * @param rgb Color as {@code 0xRRGGBB}.
+	 *
+	 * @return Color.
+	 */
+	public static RgbColor fromRgb( final int rgb )
+	{
+		final int value = rgb & 0xffffff;
+		return ( value == 0 ) ? BLACK : new RgbColor( value );
+	}
+
+	/**
+	 * Returns the color with the given value, as stored in EWS files.
+	 *
+	 * @param bgr Color as {@code 0x00BBGGRR}.
+	 *
+	 * @return Color.
+	 */
+	static RgbColor fromBgr( final int bgr )
+	{
+		return fromRgb( Integer.reverseBytes( bgr ) >>> 8 );
+	}
+
+	public int getRed()
+	{
+		return ( _rgb >> 16 ) & 0xff;
+	}
+
+	public int getGreen()
+	{
+		return ( _rgb >> 8 ) & 0xff;
+	}
+
+	public int getBlue()
+	{
+		return _rgb & 0xff;
+	}
+
+	/**
+	 * Returns the RGB value of the color.
+	 *
+	 * @return Color as {@code 0xRRGGBB}.
+	 */
+	public int getRgb()
+	{
+		return _rgb;
+	}
+
+	/**
+	 * Returns the value of the color as stored in EWS files.
+	 *
+	 * @return Color as {@code 0x00BBGGRR}.
+	 */
+	int getBgr()
+	{
+		return Integer.reverseBytes( _rgb ) >>> 8;
+	}
+
+	@Override
+	public boolean equals( final Object obj )
+	{
+		return ( obj == this ) || ( obj instanceof RgbColor ) && ( _rgb == ( (RgbColor)obj )._rgb );
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return _rgb;
+	}
+
+	@Override
+	public String toString()
+	{
+		return String.format( "#%06x", _rgb );
+	}
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io.ews;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+/**
+ * Parses all schedule files in a directory tree in parallel. Files are parsed
+ * by a work-stealing pool, while the number of files being parsed or waiting
+ * to be parsed is bounded.
+ *
+ * @author Gerrit Meinders
+ */
+public class ScheduleArchiveScanner
+{
+	/**
+	 * Creates the parser used by each worker thread.
+	 */
+	private final Supplier<EwsParser> _parserFactory;
+
+	/**
+	 * Number of worker threads.
+	 */
+	private int _parallelism = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Maximum number of files being parsed or waiting to be parsed.
+	 */
+	private int _maximumFilesInFlight = 4 * Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Selects the files to be parsed.
+	 */
+	private Predicate<Path> _filter = file -> file.getFileName().toString().toLowerCase( Locale.ROOT ).endsWith( ".ews" );
+
+	private final LongAdder _parsedCount = new LongAdder();
+
+	private final LongAdder _failedCount = new LongAdder();
+
+	private final LongAdder _byteCount = new LongAdder();
+
+	private final AtomicLong _elapsedNanos = new AtomicLong();
+
+	/**
+	 * Constructs a new instance using default parsers.
+	 */
+	public ScheduleArchiveScanner()
+	{
+		this( EwsParser::new );
+	}
+
+	/**
+	 * Constructs a new instance.
+	 *
+	 * @param parserFactory Creates the parser used by each worker thread.
+	 */
+	public ScheduleArchiveScanner( final Supplier<EwsParser> parserFactory )
+	{
+		_parserFactory = parserFactory;
+	}
+
+	public int getParallelism()
+	{
+		return _parallelism;
+	}
+
+	public void setParallelism( final int parallelism )
+	{
+		if ( parallelism < 1 )
+		{
+			throw new IllegalArgumentException( "parallelism: " + parallelism );
+		}
+		_parallelism = parallelism;
+	}
+
+	public int getMaximumFilesInFlight()
+	{
+		return _maximumFilesInFlight;
+	}
+
+	/**
+	 * Sets the maximum number of files being parsed or queued for parsing at
+	 * any time, which bounds memory usage when parsing is slower than walking
+	 * the directory tree.
+	 *
+	 * @param maximumFilesInFlight Maximum number of files.
+	 */
+	public void setMaximumFilesInFlight( final int maximumFilesInFlight )
+	{
+		if ( maximumFilesInFlight < 1 )
+		{
+			throw new IllegalArgumentException( "maximumFilesInFlight: " + maximumFilesInFlight );
+		}
+		_maximumFilesInFlight = maximumFilesInFlight;
+	}
+
+	public Predicate<Path> getFilter()
+	{
+		return _filter;
+	}
+
+	/**
+	 * Sets the filter that selects which regular files are parsed. By default,
+	 * all files with an '.ews' extension are parsed.
+	 *
+	 * @param filter Filter to be set.
+	 */
+	public void setFilter( final Predicate<Path> filter )
+	{
+		_filter = filter;
+	}
+
+	/**
+	 * Parses all matching files in the given directory and its
+	 * subdirectories. Returns when all files have been parsed.
+	 *
+	 * <p>The listener is called from worker threads, possibly concurrently.
+	 * Files and directories that can't be accessed are reported as failures,
+	 * after which the scan continues. Any exception thrown by the listener
+	 * for a parsed schedule is reported as a failure of that file.
+	 *
+	 * @param directory Directory to be scanned.
+	 * @param listener  Receives parsed schedules and failures.
+	 *
+	 * @throws IOException if the directory itself can't be accessed.
+	 */
+	public void scan( final Path directory, final Listener listener )
+	throws IOException
+	{
+		final long start = System.nanoTime();
+
+		final ForkJoinPool pool = new ForkJoinPool( getParallelism() );
+		final ThreadLocal<EwsParser> parsers = ThreadLocal.withInitial( _parserFactory );
+		final Semaphore filesInFlight = new Semaphore( getMaximumFilesInFlight() );
+		final Predicate<Path> filter = getFilter();
+
+		try
+		{
+			if ( !Files.isDirectory( directory ) )
+			{
+				throw new NotDirectoryException( directory.toString() );
+			}
+
+			Files.walkFileTree( directory, new SimpleFileVisitor<Path>()
+			{
+				@Override
+				public FileVisitResult visitFile( final Path file, final BasicFileAttributes attributes )
+					throws IOException
+				{
+					if ( attributes.isRegularFile() && filter.test( file ) )
+					{
+						try
+						{
+							filesInFlight.acquire();
+						}
+						catch ( final InterruptedException e )
+						{
+							Thread.currentThread().interrupt();
+							throw new InterruptedIOException( "Interrupted while scanning " + directory );
+						}
+
+						pool.execute( () -> {
+							try
+							{
+								parseFile( parsers.get(), file, listener );
+							}
+							finally
+							{
+								filesInFlight.release();
+							}
+						} );
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed( final Path file, final IOException exception )
+				{
+					fail( file, exception, listener );
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult postVisitDirectory( final Path dir, final IOException exception )
+				{
+					if ( exception != null )
+					{
+						fail( dir, exception, listener );
+					}
+					return FileVisitResult.CONTINUE;
+				}
+			} );
+		}
+		finally
+		{
+			pool.shutdown();
+			boolean interrupted = false;
+			while ( true )
+			{
+				try
+				{
+					pool.awaitTermination( Long.MAX_VALUE, TimeUnit.NANOSECONDS );
+					break;
+				}
+				catch ( final InterruptedException e )
+				{
+					interrupted = true;
+				}
+			}
+			if ( interrupted )
+			{
+				Thread.currentThread().interrupt();
+			}
+
+			_elapsedNanos.addAndGet( System.nanoTime() - start );
+		}
+	}
+
+	/**
+	 * Parses the given file and reports the result. Nothing is thrown, since
+	 * anything escaping into the pool would be lost.
+	 */
+	private void parseFile( final EwsParser parser, final Path file, final Listener listener )
+	{
+		final Schedule schedule;
+		final long size;
+		try
+		{
+			size = Files.size( file );
+			schedule = parser.parse( file );
+		}
+		catch ( final Throwable e )
+		{
+			fail( file, e, listener );
+			return;
+		}
+
+		try
+		{
+			listener.scheduleParsed( file, schedule );
+		}
+		catch ( final Throwable e )
+		{
+			fail( file, e, listener );
+			return;
+		}
+
+		_byteCount.add( size );
+		_parsedCount.increment();
+	}
+
+	/**
+	 * Counts the given failure and reports it to the listener. Anything thrown
+	 * by the listener is ignored, since there is no one else to report it to.
+	 */
+	private void fail( final Path file, final Throwable cause, final Listener listener )
+	{
+		_failedCount.increment();
+		try
+		{
+			listener.scheduleFailed( file, cause );
+		}
+		catch ( final Throwable ignored )
+		{
+			// Ignore; the failure is counted.
+		}
+	}
+
+	/**
+	 * Returns the number of files that were parsed successfully.
+	 *
+	 * @return Number of parsed files.
+	 */
+	public long getParsedCount()
+	{
+		return _parsedCount.sum();
+	}
+
+	/**
+	 * Returns the number of files that could not be parsed.
+	 *
+	 * @return Number of failed files.
+	 */
+	public long getFailedCount()
+	{
+		return _failedCount.sum();
+	}
+
+	/**
+	 * Returns the total size of all files that were parsed successfully.
+	 *
+	 * @return Number of bytes.
+	 */
+	public long getByteCount()
+	{
+		return _byteCount.sum();
+	}
+
+	/**
+	 * Returns the time spent in completed calls to {@link #scan}.
+	 *
+	 * @param unit Time unit of the result.
+	 *
+	 * @return Elapsed time.
+	 */
+	public long getElapsedTime( final TimeUnit unit )
+	{
+		return unit.convert( _elapsedNanos.get(), TimeUnit.NANOSECONDS );
+	}
+
+	/**
+	 * Returns the number of files (parsed or failed) processed per second
+	 * during completed calls to {@link #scan}.
+	 *
+	 * @return Files per second.
+	 */
+	public double getThroughput()
+	{
+		final long elapsedNanos = _elapsedNanos.get();
+		return elapsedNanos == 0 ? 0.0 : ( getParsedCount() + getFailedCount() ) * 1.0e9 / (double)elapsedNanos;
+	}
+
+	/**
+	 * Receives the results of a scan.
+	 */
+	public interface Listener
+	{
+		/**
+		 * Called when a schedule file was parsed.
+		 *
+		 * @param file     Schedule file.
+		 * @param schedule Parsed schedule.
+		 */
+		void scheduleParsed( Path file, Schedule schedule );
+
+		/**
+		 * Called when a schedule file could not be parsed, or a file or
+		 * directory could not be accessed.
+		 *
+		 * @param file      Schedule file or directory.
+		 * @param exception Cause of the failure, which may be an {@link Error}
+		 *                  such as {@link OutOfMemoryError}.
+		 */
+		void scheduleFailed( Path file, Throwable exception );
+	}
+}
@@ -16,6 +16,7 @@
  */
 package lithium.io.ews;
 
+import java.time.*;
 import java.util.Date;
 
 /**
@@ -35,7 +36,7 @@ public class ScheduleEntry {
 
     private String _administrator;
 
-    private Date _timestamp;
+    private LocalDateTime _timestamp;
 
     private Content _content;
 
@@ -51,6 +52,17 @@ public class ScheduleEntry {
 
     private BinaryContent _thumbnailImage;
 
+    /**
+     * Original data of the entry, if kept by the parser.
+     */
+    private RawEntry _raw;
+
+    /**
+     * Whether a property of the entry was set since it was parsed. See
+     * {@link #isModified()} for changes to the objects it refers to.
+     */
+    private boolean _modified;
+
     /**
      * Constructs a new instance.
      */
@@ -71,6 +83,7 @@ public class ScheduleEntry {
     }
 
     public void setTitle(final String title) {
+        _modified = true;
         _title = title;
     }
 
@@ -79,6 +92,7 @@ public class ScheduleEntry {
     }
 
     public void setMediaResource(final String mediaResource) {
+        _modified = true;
         _mediaResource = mediaResource;
     }
 
@@ -87,6 +101,7 @@ public class ScheduleEntry {
     }
 
     public void setAuthor(final String author) {
+        _modified = true;
         _author = author;
     }
 
@@ -95,6 +110,7 @@ public class ScheduleEntry {
     }
 
     public void setCopyright(final String copyright) {
+        _modified = true;
         _copyright = copyright;
     }
 
@@ -103,22 +119,66 @@ public class ScheduleEntry {
     }
 
     public void setAdministrator(final String administrator) {
+        _modified = true;
         _administrator = administrator;
     }
 
+    /**
+     * Returns the timestamp of the entry in the system default time zone.
+     *
+     * @return Timestamp; {@code null} if not set.
+     */
     public Date getTimestamp() {
-        return _timestamp;
+        return toDate(_timestamp);
     }
 
+    /**
+     * Sets the timestamp of the entry, which is stored as a local date and
+     * time in the system default time zone.
+     *
+     * @param timestamp Timestamp to be set.
+     */
     public void setTimestamp(final Date timestamp) {
+        _modified = true;
+        _timestamp = (timestamp == null) ? null : LocalDateTime.ofInstant(timestamp.toInstant(), ZoneId.systemDefault());
+    }
+
+    /**
+     * Returns the timestamp of the entry, as stored in the file. Timestamps in
+     * EWS files don't specify a time zone.
+     *
+     * @return Timestamp; {@code null} if not set.
+     */
+    public LocalDateTime getLocalTimestamp() {
+        return _timestamp;
+    }
+
+    public void setLocalTimestamp(final LocalDateTime timestamp) {
+        _modified = true;
         _timestamp = timestamp;
     }
 
+    /**
+     * Returns the timestamp of the entry in the given time zone.
+     *
+     * @param zone Time zone of the timestamp.
+     *
+     * @return Timestamp; {@code null} if not set.
+     */
+    public Instant getTimestampInstant(final ZoneId zone) {
+        return (_timestamp == null) ? null : _timestamp.atZone(zone).toInstant();
+    }
+
+    static Date toDate(final LocalDateTime timestamp) {
+        return (timestamp == null) ? null : Date.from(timestamp.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
     public Content getContent() {
         return _content;
     }
 
     public void setContent(final Content content) {
+        _modified = true;
         _content = content;
     }
 
@@ -127,6 +187,7 @@ public class ScheduleEntry {
     }
 
     public void setType(final Type type) {
+        _modified = true;
         _type = type;
     }
 
@@ -135,6 +196,7 @@ public class ScheduleEntry {
     }
 
     public void setNotes(final String notes) {
+        _modified = true;
         _notes = notes;
     }
 
@@ -143,10 +205,12 @@ public class ScheduleEntry {
     }
 
     public void setSongNumber(final String songNumber) {
+        _modified = true;
         _songNumber = songNumber;
     }
 
     public void setPresentation(final Presentation presentation) {
+        _modified = true;
         _presentation = presentation;
     }
 
@@ -155,6 +219,7 @@ public class ScheduleEntry {
     }
 
     public void setBackground(final Background background) {
+        _modified = true;
         _background = background;
     }
 
@@ -163,6 +228,7 @@ public class ScheduleEntry {
     }
 
     public void setThumbnailImage(BinaryContent thumbnailImage) {
+        _modified = true;
         _thumbnailImage = thumbnailImage;
     }
 
@@ -170,6 +236,107 @@ public class ScheduleEntry {
         return _thumbnailImage;
     }
 
+    /**
+     * Returns whether the entry was modified since it was parsed. Setting any
+     * property of the entry marks it as modified, as do changes to its
+     * content, background, thumbnail and presentation. In-place changes to
+     * text, e.g. to the document returned by {@link TextContent#getText()},
+     * are detected by comparing it with the parsed text, and so are changes to
+     * the array returned by {@link BinaryContent#getBytes()}.
+     *
+     * @return {@code true} if the entry was modified.
+     *
+     * @see ParseOptions#setKeepRawData
+     */
+    public boolean isModified() {
+        return _modified || isModified(_content) || isModified(_background)
+                || (_thumbnailImage != null && _thumbnailImage.isModified())
+                || (_presentation != null && _presentation.isModified());
+    }
+
+    /**
+     * Marks the entry as modified or not. Marking the entry as unmodified
+     * also applies to its content, background, thumbnail and presentation.
+     *
+     * @param modified Whether the entry is modified.
+     */
+    public void setModified(final boolean modified) {
+        _modified = modified;
+        if (!modified) {
+            clearModified();
+        }
+    }
+
+    /**
+     * Returns the original data of the entry, unless it was modified.
+     *
+     * @return Original data; {@code null} if not available.
+     */
+    RawEntry getRaw() {
+        return (_raw == null || isModified()) ? null : _raw;
+    }
+
+    /**
+     * Sets the original data of the entry, which marks it as unmodified.
+     *
+     * @param raw Original data.
+     */
+    void setRaw(final RawEntry raw) {
+        _raw = raw;
+        setModified(false);
+    }
+
+    private static boolean isModified(final Content content) {
+        if (content instanceof TextContent) {
+            return ((TextContent) content).isModified();
+        } else if (content instanceof BinaryContent) {
+            return ((BinaryContent) content).isModified();
+        }
+        return content != null;
+    }
+
+    private static boolean isModified(final Background background) {
+        if (background instanceof ColorBackground) {
+            return ((ColorBackground) background).isModified();
+        } else if (background instanceof GradientBackground) {
+            return ((GradientBackground) background).isModified();
+        } else if (background instanceof ImageBackground) {
+            return ((ImageBackground) background).isModified();
+        } else if (background instanceof VideoBackground) {
+            return ((VideoBackground) background).isModified();
+        } else if (background instanceof LiveVideoBackground) {
+            return ((LiveVideoBackground) background).isModified();
+        }
+        return background != null;
+    }
+
+    private void clearModified() {
+        if (_content instanceof TextContent) {
+            ((TextContent) _content).clearModified();
+        } else if (_content instanceof BinaryContent) {
+            ((BinaryContent) _content).clearModified();
+        }
+
+        if (_background instanceof ColorBackground) {
+            ((ColorBackground) _background).clearModified();
+        } else if (_background instanceof GradientBackground) {
+            ((GradientBackground) _background).clearModified();
+        } else if (_background instanceof ImageBackground) {
+            ((ImageBackground) _background).clearModified();
+        } else if (_background instanceof VideoBackground) {
+            ((VideoBackground) _background).clearModified();
+        } else if (_background instanceof LiveVideoBackground) {
+            ((LiveVideoBackground) _background).clearModified();
+        }
+
+        if (_thumbnailImage != null) {
+            _thumbnailImage.clearModified();
+        }
+        if (_presentation != null) {
+            _presentation.clearModified();
+        }
+    }
+
     public enum Type {
         UNKNOWN,
         SONG,
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io.ews;
+
+/**
+ * Header of a schedule file, which specifies the layout of the entry table.
+ *
+ * @author Gerrit Meinders
+ */
+class ScheduleHeader
+{
+	/**
+	 * Maximum length of the header, for any supported version.
+	 */
+	static final int MAXIMUM_LENGTH = 62;
+
+	/**
+	 * Minimum length of an entry record, up to and including the font
+	 * settings, which every version of the format contains.
+	 */
+	static final int MINIMUM_ENTRY_LENGTH = 848;
+
+	private final String _version;
+
+	private final int _entryCount;
+
+	private final int _entryLength;
+
+	private final int _entryTableOffset;
+
+	ScheduleHeader( final String version, final int entryCount, final int entryLength, final int entryTableOffset )
+	{
+		_version = version;
+		_entryCount = entryCount;
+		_entryLength = entryLength;
+		_entryTableOffset = entryTableOffset;
+	}
+
+	String getVersion()
+	{
+		return _version;
+	}
+
+	int getEntryCount()
+	{
+		return _entryCount;
+	}
+
+	int getEntryLength()
+	{
+		return _entryLength;
+	}
+
+	/**
+	 * Returns the position of the first entry record, directly following the
+	 * header.
+	 *
+	 * @return Position of the entry table.
+	 */
+	int getEntryTableOffset()
+	{
+		return _entryTableOffset;
+	}
+
+	/**
+	 * Returns the position of the record for the specified entry.
+	 *
+	 * @param index Index of the entry.
+	 *
+	 * @return Position of the entry record.
+	 */
+	int getEntryOffset( final int index )
+	{
+		return _entryTableOffset + index * _entryLength;
+	}
+
+	/**
+	 * Returns the length of the entry table. Use {@link #checkEntryTable}
+	 * first to make sure the length is valid.
+	 *
+	 * @return Length of the entry table.
+	 */
+	int getEntryTableLength()
+	{
+		return _entryCount * _entryLength;
+	}
+
+	/**
+	 * Checks that the entry table described by the header is valid and fits
+	 * in a file of the given size, before any space is allocated for it.
+	 *
+	 * @param fileSize Size of the file; {@code -1} if unknown.
+	 *
+	 * @throws IllegalArgumentException if the entry table is invalid or
+	 * doesn't fit.
+	 */
+	void checkEntryTable( final long fileSize )
+	{
+		if ( _entryCount < 0 )
+		{
+			throw new IllegalArgumentException( "Invalid entry count: " + _entryCount );
+		}
+		if ( _entryLength < MINIMUM_ENTRY_LENGTH )
+		{
+			throw new IllegalArgumentException( "Invalid entry length: " + _entryLength + ", expected at least " + MINIMUM_ENTRY_LENGTH );
+		}
+
+		final long tableLength = (long)_entryCount * _entryLength;
+		final long available = ( ( fileSize < 0 ) ? Integer.MAX_VALUE : Math.min( fileSize, Integer.MAX_VALUE ) ) - _entryTableOffset;
+		if ( tableLength > available )
+		{
+			throw new IllegalArgumentException( "Entry table of " + _entryCount + " entries of " + _entryLength + " bytes doesn't fit in " + ( ( fileSize < 0 ) ? "a schedule" : fileSize + " bytes" ) );
+		}
+	}
+}
@@ -24,10 +24,15 @@ package lithium.io.ews;
  */
 public class Slide
 {
-	private byte[] _content;
+	private BinaryContent _content = new BinaryContent();
 
 	private byte[] _unknown;
 
+	/**
+	 * Whether the slide was changed since {@link #clearModified()}.
+	 */
+	private boolean _modified = false;
+
 	/**
 	 * Constructs a new instance.
 	 */
@@ -35,23 +40,76 @@ public class Slide
 	{
 	}
 
+	/**
+	 * Returns the preview image of the slide, loading it first if it was
+	 * deferred.
+	 *
+	 * @return Image data; {@code null} if not available.
+	 */
 	public byte[] getContent()
 	{
-		return _content;
+		return _content.getBytes();
 	}
 
 	public void setContent( final byte[] content )
 	{
-		_content = content;
+		_content = new BinaryContent( content );
+		_modified = true;
+	}
+
+	/**
+	 * Returns the preview image of the slide, which may not be loaded,
+	 * depending on {@link ParseOptions#getSlides()}.
+	 *
+	 * @return Image content.
+	 */
+	public BinaryContent getBinaryContent()
+	{
+		return _content;
+	}
+
+	public void setBinaryContent( final BinaryContent content )
+	{
+		_content = ( content == null ) ? new BinaryContent() : content;
+		_modified = true;
+	}
+
+	/**
+	 * Returns the length of the preview image, without loading it.
+	 *
+	 * @return Length in bytes.
+	 */
+	public int getContentLength()
+	{
+		return _content.getLength();
 	}
 
 	public void setUnknown( byte[] unknown )
 	{
 		_unknown = unknown;
+		_modified = true;
 	}
 
 	public byte[] getUnknown()
 	{
 		return _unknown;
 	}
+
+	/**
+	 * Returns whether the slide was changed since the last call to
+	 * {@link #clearModified()}.
+	 */
+	boolean isModified()
+	{
+		return _modified || _content.isModified();
+	}
+
+	/**
+	 * Marks the slide as unmodified.
+	 */
+	void clearModified()
+	{
+		_modified = false;
+		_content.clearModified();
+	}
 }
@@ -17,16 +17,46 @@
 
 package lithium.io.ews;
 
-import lithium.io.rtf.RtfGroup;
+import java.io.*;
+import java.security.*;
+import java.util.*;
+
+import lithium.io.*;
+import lithium.io.rtf.*;
 
 /**
  * Text content, e.g. songs or scripture, typically with RTF markup.
  *
+ * <p>Text content read by a parser in lazy mode is kept in its compressed form
+ * until {@link #getText()} is first called. This class is thread-safe.
+ *
  * @author Gerrit Meinders
  */
 public class TextContent
         implements Content {
-    private RtfGroup _text;
+    private volatile RtfGroup _text;
+
+    /**
+     * Compressed text that is yet to be decoded, if any.
+     */
+    private DeflatedText _deflated;
+
+    /**
+     * Whether the text was replaced since {@link #clearModified()}.
+     */
+    private boolean _modified = false;
+
+    /**
+     * Whether {@link #_originalDigest} is kept, i.e. whether in-place changes
+     * to the text are detected.
+     */
+    private boolean _tracked = false;
+
+    /**
+     * Digest of the text at the time of {@link #clearModified()}, or when it
+     * was decoded after that; {@code null} if not decoded (yet).
+     */
+    private byte[] _originalDigest;
 
     /**
      * Constructs a new instance.
@@ -38,12 +68,100 @@ public class TextContent
         setText(text);
     }
 
+    /**
+     * Constructs a new instance that decodes the given text on demand.
+     *
+     * @param deflated Compressed text.
+     */
+    TextContent(final DeflatedText deflated) {
+        _deflated = deflated;
+    }
+
+    /**
+     * Returns the text. Compressed text is decoded on the first call.
+     *
+     * @return RTF document.
+     *
+     * @throws UncheckedIOException if compressed text can't be decoded.
+     */
     public RtfGroup getText() {
-        return _text;
+        RtfGroup result = _text;
+        if (result == null) {
+            synchronized (this) {
+                result = _text;
+                if (result == null && _deflated != null) {
+                    try {
+                        result = _deflated.inflate();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    _text = result;
+                    _deflated = null;
+                    if (_tracked) {
+                        _originalDigest = digest(result);
+                    }
+                }
+            }
+        }
+        return result;
     }
 
     public void setText(final RtfGroup text) {
-        _text = text;
+        synchronized (this) {
+            _text = text;
+            _deflated = null;
+            _modified = true;
+        }
+    }
+
+    /**
+     * Returns whether the text has been decoded, i.e. whether calling
+     * {@link #getText()} is cheap.
+     *
+     * @return {@code true} if the text is decoded.
+     */
+    public boolean isDecoded() {
+        synchronized (this) {
+            return _deflated == null;
+        }
+    }
+
+    /**
+     * Returns whether the text was changed since the last call to
+     * {@link #clearModified()}. Since the document returned by
+     * {@link #getText()} may be changed in place, this compares the document
+     * with its state at that time. Text that isn't decoded is unmodified.
+     */
+    synchronized boolean isModified() {
+        if (_modified) {
+            return true;
+        } else if (!_tracked || _deflated != null) {
+            return false;
+        }
+        return !Arrays.equals(_originalDigest, digest(_text));
+    }
+
+    /**
+     * Marks the text as unmodified, and starts detecting in-place changes.
+     */
+    synchronized void clearModified() {
+        _modified = false;
+        _tracked = true;
+        _originalDigest = _deflated == null ? digest(_text) : null;
+    }
+
+    /**
+     * Returns a digest of the given document as it would be written.
+     */
+    private static byte[] digest(final RtfGroup text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(RtfWriter.writeToBytes(text, ParseListener.IGNORE));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 
     @Override
@@ -16,10 +16,11 @@
  */
 package lithium.io.ews;
 
-import java.awt.*;
 import java.io.*;
 import java.nio.*;
+import java.nio.channels.*;
 import java.nio.charset.*;
+import java.time.*;
 import java.util.*;
 
 /**
@@ -66,6 +67,20 @@ class Tools
 		return new String( string, 0, length, charset );
 	}
 
+	/**
+	 * Copies the remaining content of the given buffer into a new array.
+	 *
+	 * @param buffer Buffer to copy; its position is not changed.
+	 *
+	 * @return Array-backed buffer with the same content and byte order.
+	 */
+	static ByteBuffer copy( final ByteBuffer buffer )
+	{
+		final byte[] bytes = new byte[ buffer.remaining() ];
+		buffer.duplicate().get( bytes );
+		return ByteBuffer.wrap( bytes ).order( buffer.order() );
+	}
+
 	/**
 	 * Parses a null-terminated string of up to {@code length} bytes and skips
 	 * any remaining bytes, such that {@code length} bytes are always read.
@@ -78,63 +93,77 @@ class Tools
 	 */
 	static String parsePaddedCString( final ByteBuffer buffer, final int length, final Charset charset )
 	{
-		final byte[] string = new byte[ length ];
-		int bytesRead = 0;
-		while ( bytesRead < length )
+		final int start = buffer.position();
+		final int terminator = indexOfNul( buffer, start, length );
+		final int stringLength = ( terminator == -1 ) ? length : terminator - start;
+
+		final String result;
+		if ( stringLength == 0 )
 		{
-			final byte b = buffer.get();
-			if ( b == 0 )
-			{
-				break;
-			}
-			else
-			{
-				string[ bytesRead ] = b;
-				bytesRead++;
-			}
+			result = "";
+		}
+		else if ( buffer.hasArray() )
+		{
+			result = new String( buffer.array(), buffer.arrayOffset() + start, stringLength, charset );
+		}
+		else
+		{
+			final byte[] string = new byte[ stringLength ];
+			buffer.get( string );
+			result = new String( string, charset );
 		}
-		final String result = new String( string, 0, bytesRead, charset );
-		skip( buffer, length - bytesRead - 1 );
+
+		// Without a terminator, the last byte is not skipped. The file header relies on this.
+		buffer.position( start + length - ( terminator == -1 ? 1 : 0 ) );
 		return result;
 	}
 
-	static Date parseTimestamp( final ByteBuffer buffer )
+	/**
+	 * Returns the position of the first null byte in the specified range of
+	 * the given buffer. The buffer is searched a word at a time.
+	 *
+	 * @param buffer Buffer to search.
+	 * @param start  Start of the range.
+	 * @param length Length of the range.
+	 *
+	 * @return Position of the null byte; {@code -1} if not found.
+	 */
+	static int indexOfNul( final ByteBuffer buffer, final int start, final int length )
 	{
-		final double timestamp = buffer.getDouble();
-		if ( timestamp == 0.0 )
+		final int end = start + length;
+		if ( end > buffer.limit() )
 		{
-			return null;
+			throw new BufferUnderflowException();
 		}
 
-		final int days = (int)timestamp;
-
-		final Calendar calendar = Calendar.getInstance();
-		// It appears that 1 January 1900 does not compute.
-		calendar.set( 1899, Calendar.DECEMBER, 30, 0, 0, 0 );
-		calendar.add( Calendar.DATE, days );
-
-		int millisecond = (int)( 86400000.0 * ( timestamp % 1.0 ) );
-		int second = millisecond / 1000;
-		millisecond %= 1000;
-		int minute = second / 60;
-		second %= 60;
-		final int hour = minute / 60;
-		minute %= 60;
-
-		calendar.set( Calendar.HOUR_OF_DAY, hour );
-		calendar.set( Calendar.MINUTE, minute );
-		calendar.set( Calendar.SECOND, second );
-		calendar.set( Calendar.MILLISECOND, millisecond );
-		return calendar.getTime();
+		int i = start;
+		if ( buffer.order() == ByteOrder.LITTLE_ENDIAN )
+		{
+			for ( ; i <= end - 8; i += 8 )
+			{
+				final long word = buffer.getLong( i );
+				final long zeroBytes = ( word - 0x0101010101010101L ) & ~word & 0x8080808080808080L;
+				if ( zeroBytes != 0 )
+				{
+					// Exact for the least significant (i.e. first) null byte.
+					return i + ( Long.numberOfTrailingZeros( zeroBytes ) >>> 3 );
+				}
+			}
+		}
+
+		for ( ; i < end; i++ )
+		{
+			if ( buffer.get( i ) == 0 )
+			{
+				return i;
+			}
+		}
+		return -1;
 	}
 
-	static Color parseColor( final ByteBuffer buffer )
+	static LocalDateTime parseTimestamp( final ByteBuffer buffer )
 	{
-		final int bgra = buffer.getInt();
-		final int rgb = ( bgra & 0x000000ff ) << 16 |
-		                ( bgra & 0x0000ff00 ) |
-		                ( bgra & 0x00ff0000 ) >> 16;
-		return new Color( rgb, false );
+		return OleDate.toLocalDateTime( buffer.getDouble() );
 	}
 
 	static long toLongBE( final byte[] data )
@@ -225,18 +254,38 @@ class Tools
 	throws IOException
 	{
 		final ByteArrayOutputStream out = new ByteArrayOutputStream();
-		for ( int i = 0; i < limit; i++ )
+		final byte[] buffer = new byte[ Math.max( 0, Math.min( limit, 0x1000 ) ) ];
+		int remaining = limit;
+		while ( remaining > 0 )
 		{
-			final int b = in.read();
-			if ( b == -1 )
+			final int bytesRead = in.read( buffer, 0, Math.min( remaining, buffer.length ) );
+			if ( bytesRead == -1 )
 			{
 				break;
 			}
-			out.write( b );
+			out.write( buffer, 0, bytesRead );
+			remaining -= bytesRead;
 		}
 		return out.toByteArray();
 	}
 
+	/**
+	 * Writes the remaining content of the given buffer to the given channel.
+	 *
+	 * @param channel Channel to write to.
+	 * @param buffer  Buffer to be written.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	static void writeFully( final WritableByteChannel channel, final ByteBuffer buffer )
+		throws IOException
+	{
+		while ( buffer.hasRemaining() )
+		{
+			channel.write( buffer );
+		}
+	}
+
 	static String toHex( final int value )
 	{
 		final StringBuilder result = new StringBuilder( 8 );
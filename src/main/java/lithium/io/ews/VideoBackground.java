@@ -37,6 +37,11 @@ public class VideoBackground
      */
     private BinaryContent _video;
 
+    /**
+     * Whether the background was changed since {@link #clearModified()}.
+     */
+    private boolean _modified = false;
+
     /**
      * Constructs a new instance.
      */
@@ -57,6 +62,7 @@ public class VideoBackground
 
     public void setName(final String name) {
         _name = name;
+        _modified = true;
     }
 
     public String getName() {
@@ -65,6 +71,7 @@ public class VideoBackground
 
     public void setAspectRatio(final ScheduleEntry.AspectRatio aspectRatio) {
         _aspectRatio = aspectRatio;
+        _modified = true;
     }
 
     public ScheduleEntry.AspectRatio getAspectRatio() {
@@ -73,6 +80,7 @@ public class VideoBackground
 
     public void setImage(final BinaryContent image) {
         _image = image;
+        _modified = true;
     }
 
     public BinaryContent getImage() {
@@ -81,9 +89,31 @@ public class VideoBackground
 
     public void setVideo(final BinaryContent video) {
         _video = video;
+        _modified = true;
     }
 
     public BinaryContent getVideo() {
         return _video;
     }
+
+    /**
+     * Returns whether the background was changed since the last call to
+     * {@link #clearModified()}.
+     */
+    boolean isModified() {
+        return _modified || (_image != null && _image.isModified()) || (_video != null && _video.isModified());
+    }
+
+    /**
+     * Marks the background as unmodified.
+     */
+    void clearModified() {
+        _modified = false;
+        if (_image != null) {
+            _image.clearModified();
+        }
+        if (_video != null) {
+            _video.clearModified();
+        }
+    }
 }
@@ -34,6 +34,11 @@ extends RtfWriter
 	 */
 	private final VariableCharsetWriter _writer;
 
+	/**
+	 * Receives warnings about unsupported code pages and character sets.
+	 */
+	private ParseListener _parseListener = ParseListener.STANDARD_ERROR;
+
 	/**
 	 * Constructs a new instance.
 	 *
@@ -45,6 +50,27 @@ extends RtfWriter
 		_writer = new VariableCharsetWriter( stream, charset );
 	}
 
+	public ParseListener getParseListener()
+	{
+		return _parseListener;
+	}
+
+	/**
+	 * Sets the listener that receives warnings about unsupported code pages
+	 * and character sets. By default, warnings are printed to {@link
+	 * System#err}.
+	 *
+	 * @param parseListener Listener to be set.
+	 */
+	public void setParseListener( final ParseListener parseListener )
+	{
+		if ( parseListener == null )
+		{
+			throw new NullPointerException( "parseListener" );
+		}
+		_parseListener = parseListener;
+	}
+
 	@Override
 	public void visitControlWord( final ControlWord controlWord )
 	{
@@ -58,7 +84,7 @@ extends RtfWriter
 			else if ( "mac".equals( controlWord.getWord() ) )
 			{
 				// TODO: Which (legacy) Mac code page does this indicate? MacRoman?
-				System.err.println( "WARNING: Found code page '" + controlWord.getWord() + "', which is not supported." );
+				_parseListener.warning( new ParseWarning( ParseWarning.Kind.UNSUPPORTED_CODE_PAGE, -1L, "WARNING: Found code page '" + controlWord.getWord() + "', which is not supported." ) );
 			}
 			else if ( "pc".equals( controlWord.getWord() ) )
 			{
@@ -83,7 +109,7 @@ extends RtfWriter
 				}
 				catch ( final UnsupportedCharsetException e )
 				{
-					System.err.println( "WARNING: Unsupported character set '" + charsetName + "' (for '" + controlWord.getWord() + ( controlWord.getNumericParameter() == null ? "" : String.valueOf( controlWord.getNumericParameter() ) ) + "' control word)" );
+					_parseListener.warning( new ParseWarning( ParseWarning.Kind.UNSUPPORTED_CHARSET, -1L, "WARNING: Unsupported character set '" + charsetName + "' (for '" + controlWord.getWord() + ( controlWord.getNumericParameter() == null ? "" : String.valueOf( controlWord.getNumericParameter() ) ) + "' control word)" ) );
 				}
 			}
 		}
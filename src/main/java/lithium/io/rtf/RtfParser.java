@@ -18,31 +18,42 @@
 package lithium.io.rtf;
 
 import java.io.*;
+import java.nio.*;
 import java.nio.charset.*;
+import java.util.concurrent.*;
 
 import lithium.io.*;
 
 /**
  * Parses RTF documents.
  *
+ * <p>Documents are parsed directly from bytes. Apart from hexadecimal escapes
+ * ({@code \'xx}), RTF is 7-bit ASCII, so only escapes and the occasional
+ * non-ASCII text need to be decoded using the character set of the document.
+ *
  * @author Gerrit Meinders
  */
 public class RtfParser
 {
 	/**
-	 * Character stream to read from.
+	 * Decoded strings for each single-byte escape, per character set.
+	 */
+	private static final ConcurrentMap<Charset, String[]> ESCAPES = new ConcurrentHashMap<Charset, String[]>();
+
+	/**
+	 * Bytes to read from.
 	 */
-	private Reader _reader = null;
+	private byte[] _bytes = null;
 
 	/**
-	 * Next character to parse.
+	 * Position of the next byte to parse.
 	 */
-	private int _next = -1;
+	private int _position = 0;
 
 	/**
-	 * String builder that's re-used during parsing.
+	 * End of the bytes to parse.
 	 */
-	private final StringBuilder _builder = new StringBuilder();
+	private int _limit = 0;
 
 	/**
 	 * Character set to use.
@@ -50,7 +61,13 @@ public class RtfParser
 	private Charset _charset = Charset.forName( Config.charset );
 
 	/**
-	 * Parses an RTF document from the given stream.
+	 * Decoded strings for each single-byte escape in the character set.
+	 */
+	private String[] _escapes = null;
+
+	/**
+	 * Parses an RTF document from the given stream. The stream is read
+	 * completely before parsing.
 	 *
 	 * @param in Stream to read from.
 	 *
@@ -61,13 +78,86 @@ public class RtfParser
 	public RtfGroup parse( final InputStream in )
 	throws IOException
 	{
-		final BufferedInputStream bin = new BufferedInputStream( in );
-		_charset = detectCharset( bin );
-		final InputStreamReader reader = new InputStreamReader( bin, _charset );
-		_reader = reader;
-		_next = reader.read();
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[ 0x2000 ];
+		int read;
+		while ( ( read = in.read( buffer ) ) != -1 )
+		{
+			out.write( buffer, 0, read );
+		}
+		return parse( out.toByteArray() );
+	}
 
-		return parseGroup();
+	/**
+	 * Parses an RTF document from the remaining content of the given buffer.
+	 * The position of the buffer is not changed.
+	 *
+	 * @param buffer Buffer to read from.
+	 *
+	 * @return RTF document.
+	 *
+	 * @throws IOException if the document can't be parsed.
+	 */
+	public RtfGroup parse( final ByteBuffer buffer )
+	throws IOException
+	{
+		if ( buffer.hasArray() )
+		{
+			return parse( buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining() );
+		}
+
+		final byte[] bytes = new byte[ buffer.remaining() ];
+		buffer.duplicate().get( bytes );
+		return parse( bytes );
+	}
+
+	/**
+	 * Parses an RTF document from the given bytes.
+	 *
+	 * @param bytes Bytes to read from.
+	 *
+	 * @return RTF document.
+	 *
+	 * @throws IOException if the document can't be parsed.
+	 */
+	public RtfGroup parse( final byte[] bytes )
+	throws IOException
+	{
+		return parse( bytes, 0, bytes.length );
+	}
+
+	/**
+	 * Parses an RTF document from the specified range of the given array.
+	 *
+	 * @param bytes  Bytes to read from.
+	 * @param offset Start of the document.
+	 * @param length Length of the document.
+	 *
+	 * @return RTF document.
+	 *
+	 * @throws IOException if the document can't be parsed.
+	 */
+	public RtfGroup parse( final byte[] bytes, final int offset, final int length )
+	throws IOException
+	{
+		if ( offset < 0 || length < 0 || offset > bytes.length - length )
+		{
+			throw new IndexOutOfBoundsException( "offset: " + offset + ", length: " + length + ", array length: " + bytes.length );
+		}
+
+		_bytes = bytes;
+		_position = offset;
+		_limit = offset + length;
+		try
+		{
+			_charset = detectCharset();
+			_escapes = getEscapes( _charset );
+			return parseGroup();
+		}
+		finally
+		{
+			_bytes = null;
+		}
 	}
 
 	private RtfGroup parseGroup()
@@ -76,17 +166,18 @@ public class RtfParser
 		accept( '{' );
 		final RtfGroup result = new RtfGroup();
 
-		while ( _next != -1 )
+		int next;
+		while ( ( next = peek() ) != -1 )
 		{
-			if ( _next == '}' )
+			if ( next == '}' )
 			{
 				break;
 			}
-			else if ( _next == '\\' )
+			else if ( next == '\\' )
 			{
 				result.addNode( parseControlToken() );
 			}
-			else if ( _next == '{' )
+			else if ( next == '{' )
 			{
 				result.addNode( parseGroup() );
 			}
@@ -103,21 +194,33 @@ public class RtfParser
 	private TextNode parseText()
 	throws IOException
 	{
-		if ( _next == '\\' || _next == '}' || _next == '{' )
+		final byte[] bytes = _bytes;
+		final int start = _position;
+		boolean ascii = true;
+
+		int position = start;
+		for ( ; position < _limit; position++ )
 		{
-			throw new ParseException( "Expected text content, but was '" + (char)_next + "'." );
+			final byte b = bytes[ position ];
+			if ( b == '\\' || b == '}' || b == '{' )
+			{
+				break;
+			}
+			ascii &= ( b >= 0 );
 		}
 
-		do
+		if ( position == start )
 		{
-			_builder.append( (char)_next );
-			accept();
+			throw new ParseException( "Expected text content, but was '" + (char)peek() + "'." );
+		}
+		if ( position == _limit )
+		{
+			throw new ParseException( "Unexpected end-of-file." );
 		}
-		while ( _next != '\\' && _next != '}' && _next != '{' );
+		_position = position;
 
 		final TextNode result = new TextNode();
-		result.setText( _builder.toString() );
-		_builder.setLength( 0 );
+		result.setText( new String( bytes, start, position - start, ascii ? StandardCharsets.ISO_8859_1 : _charset ) );
 		return result;
 	}
 
@@ -126,30 +229,28 @@ public class RtfParser
 	{
 		accept( '\\' );
 
-		if ( _next >= 'a' && _next <= 'z' )
+		final int next = peek();
+		if ( next >= 'a' && next <= 'z' )
 		{
 			return parseControlWord();
 		}
-		else if ( _next == '\'' )
+		else if ( next == '\'' )
 		{
 			// Get hex code for special char
 			accept();
-			int asciiCode = Character.digit( _next, 16 );
+			int asciiCode = Character.digit( peek(), 16 );
 			accept();
 			asciiCode = ( asciiCode << 4 ) |
-			            Character.digit( _next, 16 );
+			            Character.digit( peek(), 16 );
 			accept();
 
 			// Convert hex code to char with the correct charset encoding
-			final byte[] asciiBytes = { (byte)asciiCode };
-			final String specialChar = new String( asciiBytes, _charset );
-
-			return new TextNode( specialChar );
+			return new TextNode( _escapes[ asciiCode & 0xff ] );
 		}
 		else
 		{
-			final char symbol = (char)_next;
 			accept();
+			final char symbol = ( next < 0x80 ) ? (char)next : _escapes[ next ].charAt( 0 );
 
 			if ( symbol == '\\' || symbol == '{' || symbol == '}' )
 			{
@@ -165,92 +266,146 @@ public class RtfParser
 	private ControlWord parseControlWord()
 	throws IOException
 	{
-		if ( _next < 'a' || _next > 'z' )
+		final byte[] bytes = _bytes;
+		final int start = _position;
+		int position = start;
+		while ( position < _limit && bytes[ position ] >= 'a' && bytes[ position ] <= 'z' )
 		{
-			throw new ParseException( "Expected [a-z], but was '" + (char)_next + "'." );
+			position++;
+		}
+
+		if ( position == start )
+		{
+			throw new ParseException( "Expected [a-z], but was '" + (char)peek() + "'." );
 		}
 
 		final ControlWord result = new ControlWord();
+		result.setWord( new String( bytes, start, position - start, StandardCharsets.ISO_8859_1 ) );
+		_position = position;
+
+		int next = peek();
+		if ( next >= '0' && next <= '9' || next == '-' )
+		{
+			result.setNumericParameter( parseNumber() );
+			next = peek();
+		}
 
-		do
+		if ( next == ' ' )
 		{
-			_builder.append( (char)_next );
 			accept();
+			result.setDelimitedBySpace( true );
+		}
+
+		return result;
+	}
+
+	/**
+	 * Parses the numeric parameter of a control word, i.e. an optional minus
+	 * sign followed by digits.
+	 */
+	private int parseNumber()
+	throws ParseException
+	{
+		final byte[] bytes = _bytes;
+		final int start = _position;
+		int position = start;
+
+		final boolean negative = ( bytes[ position ] == '-' );
+		if ( negative )
+		{
+			position++;
 		}
-		while ( _next >= 'a' && _next <= 'z' );
-		result.setWord( _builder.toString() );
-		_builder.setLength( 0 );
 
-		if ( _next >= '0' && _next <= '9' || _next == '-' )
+		long value = 0;
+		final int digitsStart = position;
+		while ( position < _limit && bytes[ position ] >= '0' && bytes[ position ] <= '9' )
 		{
-			do
+			value = value * 10 + ( bytes[ position ] - '0' );
+			if ( value > (long)Integer.MAX_VALUE + 1 )
 			{
-				_builder.append( (char)_next );
-				accept();
+				throw new ParseException( "Numeric parameter is out of range: " + new String( bytes, start, position + 1 - start, StandardCharsets.ISO_8859_1 ) );
 			}
-			while ( _next >= '0' && _next <= '9' );
-			final String number = _builder.toString();
-			result.setNumericParameter( Integer.valueOf( number ) );
-			_builder.setLength( 0 );
+			position++;
 		}
 
-		if ( _next == ' ' )
+		if ( position == digitsStart )
 		{
-			accept();
-			result.setDelimitedBySpace( true );
+			throw new ParseException( "Expected [0-9], but was '" + (char)( ( position < _limit ) ? bytes[ position ] & 0xff : -1 ) + "'." );
 		}
 
-		return result;
+		if ( negative )
+		{
+			value = -value;
+		}
+		else if ( value > Integer.MAX_VALUE )
+		{
+			throw new ParseException( "Numeric parameter is out of range: " + value );
+		}
+
+		_position = position;
+		return (int)value;
+	}
+
+	/**
+	 * Returns the next byte to parse, without consuming it.
+	 *
+	 * @return Next byte, from 0 to 255; -1 at the end of the document.
+	 */
+	private int peek()
+	{
+		return ( _position < _limit ) ? _bytes[ _position ] & 0xff : -1;
 	}
 
 	private void accept( final int expected )
 	throws IOException
 	{
-		if ( _next == -1 )
+		final int next = peek();
+		if ( next == -1 )
 		{
 			throw new ParseException( "Expected '" + (char)expected + "', but was end-of-file." );
 		}
 
-		if ( _next != expected )
+		if ( next != expected )
 		{
-			throw new ParseException( "Expected '" + (char)expected + "', but was '" + (char)_next + "'." );
+			throw new ParseException( "Expected '" + (char)expected + "', but was '" + (char)next + "'." );
 		}
 
-		_next = _reader.read();
+		_position++;
 	}
 
 	private void accept()
 	throws IOException
 	{
-		if ( _next == -1 )
+		if ( _position >= _limit )
 		{
 			throw new ParseException( "Unexpected end-of-file." );
 		}
 
-		_next = _reader.read();
+		_position++;
 	}
 
-	private Charset detectCharset( final BufferedInputStream bin )
+	private Charset detectCharset()
 	throws IOException
 	{
-		bin.mark( 1024 );
-
-		final InputStreamReader headerReader = new InputStreamReader( bin, Config.charset );
-		accept( headerReader, '{' );
-		accept( headerReader, '\\' );
-		accept( headerReader, 'r' );
-		accept( headerReader, 't' );
-		accept( headerReader, 'f' );
-		headerReader.read(); // version number
-		accept( headerReader, '\\' );
-
-		final StringBuilder charsetBuffer = new StringBuilder();
-		int read;
-		while ( ( ( read = headerReader.read() ) != -1 ) && ( read >= 'a' ) && ( read <= 'z' ) )
+		final int start = _position;
+
+		accept( '{' );
+		accept( '\\' );
+		accept( 'r' );
+		accept( 't' );
+		accept( 'f' );
+		if ( _position < _limit )
 		{
-			charsetBuffer.append( (char)read );
+			_position++; // version number
 		}
-		final String charsetName = charsetBuffer.toString();
+		accept( '\\' );
+
+		final int nameStart = _position;
+		while ( _position < _limit && _bytes[ _position ] >= 'a' && _bytes[ _position ] <= 'z' )
+		{
+			_position++;
+		}
+		final String charsetName = new String( _bytes, nameStart, _position - nameStart, StandardCharsets.ISO_8859_1 );
 		final Charset charset;
 		if ( "ansi".equals( charsetName ) )
 		{
@@ -261,17 +416,30 @@ public class RtfParser
 			charset = Charset.forName( charsetName );
 		}
 
-		bin.reset();
+		_position = start;
 		return charset;
 	}
 
-	private void accept( final Reader in, final int expected )
-	throws IOException
+	/**
+	 * Returns the decoded string for each single-byte escape in the given
+	 * character set.
+	 *
+	 * @param charset Character set.
+	 *
+	 * @return Strings indexed by byte value.
+	 */
+	private static String[] getEscapes( final Charset charset )
 	{
-		final int read = in.read();
-		if ( read != expected )
+		String[] result = ESCAPES.get( charset );
+		if ( result == null )
 		{
-			throw new ParseException( "Expected '" + (char)expected + "', but was '" + (char)read + "'." );
+			result = new String[ 256 ];
+			for ( int i = 0; i < result.length; i++ )
+			{
+				result[ i ] = new String( new byte[] { (byte)i }, charset );
+			}
+			ESCAPES.putIfAbsent( charset, result );
 		}
+		return result;
 	}
 }
@@ -48,9 +48,24 @@ public abstract class RtfWriter
 	}
 
 	public static byte[] writeToBytes( final RtfGroup document )
+	{
+		return writeToBytes( document, ParseListener.STANDARD_ERROR );
+	}
+
+	/**
+	 * Writes the given document using {@link BinaryRtfWriter}.
+	 *
+	 * @param document      Document to be written.
+	 * @param parseListener Receives warnings about unsupported code pages and
+	 *                      character sets.
+	 *
+	 * @return Written document.
+	 */
+	public static byte[] writeToBytes( final RtfGroup document, final ParseListener parseListener )
 	{
 		final ByteArrayOutputStream out = new ByteArrayOutputStream();
 		final BinaryRtfWriter writer = new BinaryRtfWriter( out );
+		writer.setParseListener( parseListener );
 		document.accept( writer );
 		try
 		{
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package lithium.io.ews;
+
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+
+/**
+ * Compares the throughput and output size of the {@link EwsWriter.Compression}
+ * presets, using the text content of the bundled test schedules. Not run as
+ * part of the test suite.
+ *
+ * <pre>
+ * mvn test-compile
+ * java -cp target/classes:target/test-classes lithium.io.ews.CompressionBenchmark
+ * </pre>
+ *
+ * @author Gerrit Meinders
+ */
+public class CompressionBenchmark {
+    private static final String[] SCHEDULES = {
+            "lorem.ews",
+            "output2.ews",
+            "output3.ews",
+            "special_chars.ews",
+            "schedule_with_background_color_red.ews"
+    };
+
+    private static final int WARMUP_ITERATIONS = 200;
+
+    private static final int ITERATIONS = 1000;
+
+    public static void main(final String[] args) throws IOException {
+        // Only text content is compressed, so leave out any media.
+        final Schedule schedule = new Schedule();
+        for (final String name : SCHEDULES) {
+            for (final ScheduleEntry entry : new EwsParser().parse(ByteBuffer.wrap(Tools.loadResource(CompressionBenchmark.class, name))).getEntries()) {
+                if (entry.getContent() instanceof TextContent) {
+                    entry.setBackground(null);
+                    schedule.getEntries().add(entry);
+                }
+            }
+        }
+        System.out.println("Entries: " + schedule.getEntries().size());
+        System.out.println();
+        System.out.println(String.format(Locale.ROOT, "%-10s %10s %14s", "Preset", "Size", "Schedules/s"));
+
+        for (final EwsWriter.Compression compression : EwsWriter.Compression.values()) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final EwsWriter writer = new EwsWriter(out);
+            writer.setCompression(compression);
+
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                out.reset();
+                writer.write(schedule);
+            }
+
+            final long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                out.reset();
+                writer.write(schedule);
+            }
+            final double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.println(String.format(Locale.ROOT, "%-10s %10d %14.1f", compression, out.size(), ITERATIONS / seconds));
+        }
+    }
+}
@@ -19,11 +19,17 @@ package lithium.io.ews;
 
 import java.awt.*;
 import java.io.*;
+import java.net.*;
 import java.nio.*;
+import java.nio.channels.*;
 import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
 import java.util.List;
+import java.util.zip.*;
 
 import junit.framework.*;
+import lithium.io.*;
 import lithium.io.rtf.*;
 
 /**
@@ -270,4 +276,589 @@ public class TestEwsParser
         assertEquals( powerpointFileSlideImage1.length, presentation.getSlides().get( 0 ).getContent().length );
         assertEquals( powerpointFileSlideImage2.length, presentation.getSlides().get( 1 ).getContent().length );
     }
+
+    public void testReadPresentationSlideOnDemand() throws IOException {
+        // Given
+        final byte[] scheduleFile = Tools.loadResource( getClass(), "presentations/schedule_with_presentation_between_two_songs win 8.ews" );
+        final byte[] powerpointFileSlideImage2 = Tools.loadResource( getClass(), "presentations/powerpoint_with_2_slides_slide_2.jpg" );
+
+        // When
+        EwsParser parser = new EwsParser();
+        Presentation presentation = parser.parse( ByteBuffer.wrap( scheduleFile ) ).getEntries().get( 1 ).getPresentation();
+
+        // Then
+        assertEquals( 2, presentation.getSlideCount() );
+        final Slide slide = presentation.slide( 1 );
+        assertTrue( Arrays.equals( powerpointFileSlideImage2, slide.getContent() ) );
+        assertSame( slide, presentation.slide( 1 ) );
+        assertSame( slide, presentation.getSlides().get( 1 ) );
+    }
+
+    public void testReadMappedFileWithBackgroundImage() throws IOException, URISyntaxException {
+        final Path file = Paths.get(getClass().getResource("schedule_with_background_image.ews").toURI());
+        final byte[] scheduleFile = Tools.loadResource(getClass(), "schedule_with_background_image.ews");
+
+        EwsParser parser = new EwsParser();
+        Schedule mapped = parser.parse(file);
+        Schedule buffered = parser.parse(ByteBuffer.wrap(scheduleFile));
+
+        ImageBackground background = (ImageBackground) mapped.getEntries().get(0).getBackground();
+        ByteBuffer image = background.getImage().getBuffer();
+        assertTrue("Expected a read-only buffer", image.isReadOnly());
+        assertTrue("Expected a slice of the mapped file", image.isDirect());
+        assertEquals(5884, background.getImage().getLength());
+
+        ImageBackground expected = (ImageBackground) buffered.getEntries().get(0).getBackground();
+        assertEquals(expected.getImage().getBuffer(), image);
+    }
+
+    public void testParseBufferCopiesContent() throws IOException {
+        final byte[] scheduleFile = Tools.loadResource(getClass(), "schedule_with_background_image.ews");
+        final byte[] original = scheduleFile.clone();
+
+        final EwsParser parser = new EwsParser();
+        parser.setLazyTextContent(true);
+        final ParseOptions options = new ParseOptions();
+        options.setKeepRawData(true);
+        parser.setOptions(options);
+        final Schedule schedule = parser.parse(ByteBuffer.wrap(scheduleFile));
+
+        // Reuse the buffer, as a caller might.
+        Arrays.fill(scheduleFile, (byte) 0);
+
+        final Schedule expected = new EwsParser().parse(ByteBuffer.wrap(original));
+        final BinaryContent image = ((ImageBackground) schedule.getEntries().get(0).getBackground()).getImage();
+        assertEquals(((ImageBackground) expected.getEntries().get(0).getBackground()).getImage().getBuffer(), image.getBuffer());
+        assertTrue(Arrays.equals(original, write(schedule)));
+    }
+
+    public void testModifyMappedBytes() throws IOException, URISyntaxException {
+        final Path file = Paths.get(getClass().getResource("schedule_with_background_image.ews").toURI());
+
+        final Schedule schedule = new EwsParser().parse(file);
+        final BinaryContent image = ((ImageBackground) schedule.getEntries().get(0).getBackground()).getImage();
+        final byte[] bytes = image.getBytes();
+        assertSame(bytes, image.getBytes());
+        bytes[bytes.length - 1] ^= 0x01;
+        assertEquals(bytes[bytes.length - 1], image.getBuffer().get(bytes.length - 1));
+
+        final Schedule written = new EwsParser().parse(ByteBuffer.wrap(write(schedule)));
+        final BinaryContent writtenImage = ((ImageBackground) written.getEntries().get(0).getBackground()).getImage();
+        assertTrue(Arrays.equals(bytes, writtenImage.getBytes()));
+    }
+
+    public void testParseOptions() throws IOException, URISyntaxException {
+        final Path file = Paths.get(getClass().getResource("schedule_with_background_image.ews").toURI());
+
+        final EwsParser parser = new EwsParser();
+        final ImageBackground loaded = (ImageBackground) parser.parse(file).getEntries().get(0).getBackground();
+
+        final ParseOptions options = new ParseOptions();
+        options.setAllMedia(ParseOptions.MediaPolicy.SKIP);
+        parser.setOptions(options);
+        final ImageBackground skipped = (ImageBackground) parser.parse(file).getEntries().get(0).getBackground();
+        assertFalse("Image should not be loaded", skipped.getImage().isLoaded());
+        assertFalse("Image should not be available", skipped.getImage().isAvailable());
+        assertNull(skipped.getImage().getBuffer());
+        assertEquals(loaded.getImage().getLength(), skipped.getImage().getLength());
+        assertEquals(loaded.getImage().getOffset(), skipped.getImage().getOffset());
+
+        options.setBackgroundImage(ParseOptions.MediaPolicy.DEFER);
+        final ImageBackground deferred = (ImageBackground) parser.parse(file).getEntries().get(0).getBackground();
+        assertFalse("Image should not be loaded yet", deferred.getImage().isLoaded());
+        assertTrue("Image should be available", deferred.getImage().isAvailable());
+        assertEquals(loaded.getImage().getBuffer(), deferred.getImage().getBuffer());
+        assertTrue("Image should be loaded", deferred.getImage().isLoaded());
+    }
+
+    public void testDeduplicateMedia() throws IOException {
+        final EwsParser parser = new EwsParser();
+        final ScheduleEntry entry = parser.parse(ByteBuffer.wrap(Tools.loadResource(getClass(), "schedule_with_background_image.ews"))).getEntries().get(0);
+        final Schedule schedule = new Schedule();
+        schedule.getEntries().add(entry);
+        schedule.getEntries().add(entry);
+        final byte[] scheduleFile = write(schedule);
+
+        final Schedule copies = parser.parse(ByteBuffer.wrap(scheduleFile));
+        final BinaryContent first = ((ImageBackground) copies.getEntries().get(0).getBackground()).getImage();
+        final BinaryContent second = ((ImageBackground) copies.getEntries().get(1).getBackground()).getImage();
+        assertNotSame(first, second);
+
+        final ParseOptions options = new ParseOptions();
+        options.setDeduplicateMedia(true);
+        parser.setOptions(options);
+        final Schedule shared = parser.parse(ByteBuffer.wrap(scheduleFile));
+        final BinaryContent image = ((ImageBackground) shared.getEntries().get(0).getBackground()).getImage();
+        assertSame(image, ((ImageBackground) shared.getEntries().get(1).getBackground()).getImage());
+        assertEquals(first.getBuffer(), image.getBuffer());
+        assertTrue(Arrays.equals(scheduleFile, write(shared)));
+    }
+
+    public void testLazyTextContent() throws IOException {
+        final byte[] scheduleFile = Tools.loadResource(getClass(), "lorem.ews");
+
+        final EwsParser parser = new EwsParser();
+        final Schedule eager = parser.parse(ByteBuffer.wrap(scheduleFile));
+        parser.setLazyTextContent(true);
+        final Schedule lazy = parser.parse(ByteBuffer.wrap(scheduleFile));
+
+        assertEquals(eager.getEntries().size(), lazy.getEntries().size());
+        for (int i = 0; i < eager.getEntries().size(); i++) {
+            final TextContent expected = (TextContent) eager.getEntries().get(i).getContent();
+            final TextContent actual = (TextContent) lazy.getEntries().get(i).getContent();
+            assertEquals(eager.getEntries().get(i).getTitle(), lazy.getEntries().get(i).getTitle());
+            assertFalse("Entry " + i + ": text should not be decoded yet", actual.isDecoded());
+            assertEquals(RtfWriter.writeToString(expected.getText()), RtfWriter.writeToString(actual.getText()));
+            assertTrue("Entry " + i + ": text should be decoded", actual.isDecoded());
+            assertSame(actual.getText(), actual.getText());
+        }
+    }
+
+    public void testReadLargeTextFromDirectBuffer() throws IOException {
+        // Random words compress poorly, so the compressed text spans several input chunks.
+        final Random random = new Random(42);
+        final StringBuilder content = new StringBuilder();
+        for (int line = 0; line < 400; line++) {
+            for (int word = 0; word < 10; word++) {
+                for (int i = random.nextInt(8); i >= 0; i--) {
+                    content.append((char) ('a' + random.nextInt(26)));
+                }
+                content.append(' ');
+            }
+            content.append('\n');
+        }
+
+        final Schedule schedule = new Schedule();
+        schedule.getEntries().add(TestUtils.createEntry("Large", content.toString()));
+        final byte[] scheduleFile = write(schedule);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(scheduleFile.length);
+        direct.put(scheduleFile).flip();
+
+        final Schedule expected = new EwsParser().parse(ByteBuffer.wrap(scheduleFile));
+        final Schedule actual = new EwsParser().parse(direct);
+        assertEquals(TestUtils.getTextFromContent((TextContent) expected.getEntries().get(0).getContent()),
+                     TestUtils.getTextFromContent((TextContent) actual.getEntries().get(0).getContent()));
+        assertEquals(TestUtils.getTextFromContent((TextContent) schedule.getEntries().get(0).getContent()),
+                     TestUtils.getTextFromContent((TextContent) actual.getEntries().get(0).getContent()));
+    }
+
+    public void testInflateFromArray() throws IOException {
+        final byte[] text = "{\\rtf1\\ansi Inflated in one call\\par}".getBytes(StandardCharsets.US_ASCII);
+        final Deflater deflater = new Deflater();
+        final byte[] compressed = new byte[0x100];
+        final int length;
+        try {
+            deflater.setInput(text);
+            deflater.finish();
+            length = deflater.deflate(compressed, 3, compressed.length - 3);
+        } finally {
+            deflater.end();
+        }
+
+        // Heap buffer at a non-zero position: inflated directly from the array.
+        final ByteBuffer heap = ByteBuffer.wrap(compressed, 3, length);
+        final DeflatedText fromArray = new DeflatedText(heap, 0, 0, text.length, false, ParseListener.IGNORE);
+        assertTrue(fromArray.hasArray());
+        assertFalse(fromArray.getCompressed().hasArray());
+        assertTrue(Arrays.equals(text, fromArray.decompress()));
+
+        // Direct and read-only buffers: copied in chunks.
+        final ByteBuffer direct = ByteBuffer.allocateDirect(length);
+        direct.put(compressed, 3, length).flip();
+        final DeflatedText fromDirect = new DeflatedText(direct, 0, 0, text.length, false, ParseListener.IGNORE);
+        assertFalse(fromDirect.hasArray());
+        assertTrue(Arrays.equals(text, fromDirect.decompress()));
+
+        final DeflatedText fromReadOnly = new DeflatedText(heap.asReadOnlyBuffer(), 0, 0, text.length, false, ParseListener.IGNORE);
+        assertFalse(fromReadOnly.hasArray());
+        assertTrue(Arrays.equals(text, fromReadOnly.decompress()));
+    }
+
+    public void testWithoutChecksumVerification() throws IOException {
+        final byte[] scheduleFile = Tools.loadResource(getClass(), "special_chars.ews");
+
+        final EwsParser parser = new EwsParser();
+        final Schedule expected = parser.parse(ByteBuffer.wrap(scheduleFile));
+        parser.setVerifyChecksums(false);
+        final Schedule actual = parser.parse(ByteBuffer.wrap(scheduleFile));
+
+        assertEquals(expected.getEntries().size(), actual.getEntries().size());
+        for (int i = 0; i < expected.getEntries().size(); i++) {
+            assertEquals(RtfWriter.writeToString(((TextContent) expected.getEntries().get(i).getContent()).getText()),
+                         RtfWriter.writeToString(((TextContent) actual.getEntries().get(i).getContent()).getText()));
+        }
+    }
+
+    public void testParseDiagnostics() throws IOException {
+        final byte[] scheduleFile = Tools.loadResource(getClass(), "lorem.ews");
+
+        // Corrupt the checksum of the first entry.
+        final EwsParser parser = new EwsParser();
+        final int contentPointer = parser.scanIndex(ByteBuffer.wrap(scheduleFile)).get(0).getContentPointer();
+        final int contentLength = ByteBuffer.wrap(scheduleFile, contentPointer, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        scheduleFile[contentPointer + 4 + contentLength - 14] ^= 0x01;
+
+        final ParseDiagnostics diagnostics = new ParseDiagnostics();
+        parser.setParseListener(diagnostics);
+        parser.parse(ByteBuffer.wrap(scheduleFile));
+
+        assertEquals(1, diagnostics.getTotalCount());
+        assertEquals(1, diagnostics.getCount(ParseWarning.Kind.CHECKSUM_MISMATCH));
+        assertEquals(contentPointer + 4, diagnostics.getWarnings().get(0).getOffset());
+    }
+
+    public void testInvalidEntryTable() throws IOException {
+        final byte[] original = Tools.loadResource(getClass(), "lorem.ews");
+        for (final int entryCount : new int[]{-1, 1000, Integer.MAX_VALUE}) {
+            final byte[] scheduleFile = original.clone();
+            ByteBuffer.wrap(scheduleFile).order(ByteOrder.LITTLE_ENDIAN).putInt(56, entryCount);
+
+            final Path file = Files.createTempFile("invalid", ".ews");
+            try {
+                Files.write(file, scheduleFile);
+                try (FileChannel channel = FileChannel.open(file)) {
+                    new EwsParser().scanIndex(channel);
+                    fail("Expected IllegalArgumentException for entry count " + entryCount);
+                } catch (IllegalArgumentException e) {
+                    // Expected.
+                }
+                try {
+                    new EwsParser().parse(file);
+                    fail("Expected IllegalArgumentException for entry count " + entryCount);
+                } catch (IllegalArgumentException e) {
+                    // Expected.
+                }
+            } finally {
+                Files.delete(file);
+            }
+
+            try {
+                new EwsParser().scanIndex(ByteBuffer.wrap(scheduleFile));
+                fail("Expected IllegalArgumentException for entry count " + entryCount);
+            } catch (IllegalArgumentException e) {
+                // Expected.
+            }
+
+            try {
+                new EwsParser().parse(new ByteArrayInputStream(scheduleFile));
+                fail("Expected an exception for entry count " + entryCount);
+            } catch (IllegalArgumentException | EOFException e) {
+                // Expected; a stream's size is unknown, so a large entry table is only found to be truncated.
+            }
+        }
+    }
+
+    public void testIndexOfNul() {
+        // Bytes that could trip up a word-at-a-time search, e.g. by borrowing.
+        final byte[] filler = {0x01, (byte) 0x80, (byte) 0xff, 0x7f, 'a', 0x01, 0x10, (byte) 0x81};
+        final int length = 20;
+        for (final ByteOrder order : new ByteOrder[]{ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+            // Unaligned starts, so the terminator is found at every position within a word.
+            for (int start = 0; start < 8; start++) {
+                final byte[] bytes = new byte[start + length + 8];
+                for (int i = 0; i < bytes.length; i++) {
+                    bytes[i] = filler[i % filler.length];
+                }
+                final ByteBuffer buffer = ByteBuffer.wrap(bytes).order(order);
+                assertEquals(order + ", start " + start, -1, Tools.indexOfNul(buffer, start, length));
+
+                for (int terminator = start; terminator < start + length; terminator++) {
+                    bytes[terminator] = 0;
+                    assertEquals(order + ", start " + start, terminator, Tools.indexOfNul(buffer, start, length));
+                    // A second terminator must not affect the result.
+                    if (terminator + 1 < start + length) {
+                        bytes[terminator + 1] = 0;
+                        assertEquals(order + ", start " + start, terminator, Tools.indexOfNul(buffer, start, length));
+                        bytes[terminator + 1] = filler[(terminator + 1) % filler.length];
+                    }
+                    bytes[terminator] = filler[terminator % filler.length];
+                }
+
+                // Terminators outside the range are ignored.
+                bytes[start + length] = 0;
+                assertEquals(order + ", start " + start, -1, Tools.indexOfNul(buffer, start, length));
+            }
+        }
+
+        try {
+            Tools.indexOfNul(ByteBuffer.allocate(8), 4, 5);
+            fail("Expected BufferUnderflowException");
+        } catch (final BufferUnderflowException e) {
+            // Expected.
+        }
+    }
+
+    public void testPaddedCString() {
+        final Charset charset = Charset.forName("windows-1252");
+        final CStringDecoder decoder = new CStringDecoder(charset);
+        for (final ByteOrder order : new ByteOrder[]{ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+            for (final boolean direct : new boolean[]{false, true}) {
+                final ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(32) : ByteBuffer.allocate(32);
+                buffer.order(order);
+                buffer.put("Café\0garbage".getBytes(charset)).put("0123456789abcdef".getBytes(charset));
+                final String description = order + (direct ? ", direct" : ", heap");
+
+                // Terminated: the entire field is read.
+                buffer.position(0);
+                assertEquals(description, "Café", Tools.parsePaddedCString(buffer, 12, charset));
+                assertEquals(description, 12, buffer.position());
+                buffer.position(0);
+                assertEquals(description, "Café", decoder.decodePadded(buffer, 12));
+                assertEquals(description, 12, buffer.position());
+
+                // Not terminated: the last byte of the field is not skipped.
+                buffer.position(12);
+                assertEquals(description, "0123456789abcdef", Tools.parsePaddedCString(buffer, 16, charset));
+                assertEquals(description, 27, buffer.position());
+                buffer.position(12);
+                assertEquals(description, "0123456789abcdef", decoder.decodePadded(buffer, 16));
+                assertEquals(description, 27, buffer.position());
+
+                // Empty.
+                buffer.position(4);
+                assertEquals(description, "", decoder.decodePadded(buffer, 8));
+                assertEquals(description, 12, buffer.position());
+            }
+        }
+    }
+
+    public void testPaddedCStringWithMultiByteCharset() {
+        final Charset charset = StandardCharsets.UTF_8;
+        final CStringDecoder decoder = new CStringDecoder(charset);
+        final StringBuilder longString = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            longString.append("é€");
+        }
+
+        // ASCII prefixes of different lengths before the fallback to the charset decoder, and a string that exceeds the initial capacity.
+        for (final String string : Arrays.asList("plain", "été", "ab€cd", "abcdefgh中文", "ascii again", longString.toString())) {
+            final byte[] encoded = string.getBytes(charset);
+            final ByteBuffer buffer = ByteBuffer.allocate(encoded.length + 4);
+            buffer.put(encoded).put(new byte[]{0, 'x', 'y', 'z'});
+            buffer.flip();
+
+            assertEquals(string, decoder.decodePadded(buffer, buffer.limit()));
+            assertEquals(buffer.limit(), buffer.position());
+            buffer.position(0);
+            assertEquals(string, Tools.parsePaddedCString(buffer, buffer.limit(), charset));
+        }
+
+        // Malformed input is replaced, as with String.
+        final byte[] malformed = {'a', (byte) 0xc3, 0, 0};
+        assertEquals(new String(malformed, 0, 2, charset), decoder.decodePadded(ByteBuffer.wrap(malformed), malformed.length));
+    }
+
+    public void testScanIndex() throws IOException, URISyntaxException {
+        final Path file = Paths.get(getClass().getResource("presentations/schedule_with_presentation_between_two_songs win 8.ews").toURI());
+
+        final EwsParser parser = new EwsParser();
+        final List<EntryRecord> records = parser.scanIndex(file);
+        final Schedule schedule = parser.parse(file);
+
+        assertEquals(3, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            final EntryRecord record = records.get(i);
+            final ScheduleEntry entry = schedule.getEntries().get(i);
+            assertEquals(i, record.getIndex());
+            assertEquals(62 + i * 1816, record.getRecordOffset());
+            assertEquals(entry.getTitle(), record.getTitle());
+            assertEquals(entry.getType(), record.getType());
+            assertEquals(entry.getSongNumber(), record.getSongNumber());
+            assertEquals(entry.getTimestamp(), record.getTimestamp());
+        }
+        assertEquals(ScheduleEntry.Type.PRESENTATION, records.get(1).getType());
+        assertTrue(records.get(1).getPresentationLength() > 0);
+        assertTrue(records.get(0).getContentPointer() < records.get(1).getContentPointer());
+    }
+
+    public void testReader() throws IOException {
+        final byte[] scheduleFile = Tools.loadResource(getClass(), "presentations/schedule_with_presentation_between_two_songs win 8.ews");
+
+        final EwsParser parser = new EwsParser();
+        final Schedule schedule = parser.parse(ByteBuffer.wrap(scheduleFile));
+
+        final EwsReader reader = new EwsReader(parser, ByteBuffer.wrap(scheduleFile));
+        assertEquals(3, reader.getEntryCount());
+
+        final List<ScheduleEntry> entries = reader.stream().collect(java.util.stream.Collectors.toList());
+        assertFalse(reader.hasNext());
+        assertEquals(schedule.getEntries().size(), entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(schedule.getEntries().get(i).getTitle(), entries.get(i).getTitle());
+            assertEquals(schedule.getEntries().get(i).getType(), entries.get(i).getType());
+        }
+        assertEquals(2, entries.get(1).getPresentation().getSlides().size());
+    }
+
+    public void testParallelParse() throws IOException {
+        final byte[] scheduleFile = Tools.loadResource(getClass(), "lorem.ews");
+
+        final EwsParser parser = new EwsParser();
+        final Schedule expected = parser.parse(ByteBuffer.wrap(scheduleFile));
+
+        final java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newFixedThreadPool(3);
+        try {
+            parser.setExecutor(executor);
+            final Schedule actual = parser.parse(ByteBuffer.wrap(scheduleFile));
+
+            assertEquals(expected.getEntries().size(), actual.getEntries().size());
+            for (int i = 0; i < expected.getEntries().size(); i++) {
+                assertEquals(expected.getEntries().get(i).getTitle(), actual.getEntries().get(i).getTitle());
+                assertEquals(RtfWriter.writeToString(((TextContent) expected.getEntries().get(i).getContent()).getText()),
+                             RtfWriter.writeToString(((TextContent) actual.getEntries().get(i).getContent()).getText()));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testParseStreamAndChannel() throws IOException, URISyntaxException {
+        final String[] names = {
+                "lorem.ews",
+                "schedule_with_background_image.ews",
+                "presentations/schedule_with_presentation_between_two_songs win 8.ews"
+        };
+
+        final EwsParser parser = new EwsParser();
+        for (final String name : names) {
+            final byte[] scheduleFile = Tools.loadResource(getClass(), name);
+            final byte[] expected = write(parser.parse(ByteBuffer.wrap(scheduleFile)));
+
+            try (InputStream in = new ByteArrayInputStream(scheduleFile)) {
+                assertTrue(name + ": stream", Arrays.equals(expected, write(parser.parse(in))));
+            }
+
+            final Path file = Paths.get(getClass().getResource(name).toURI());
+            try (FileChannel channel = FileChannel.open(file)) {
+                final SeekableByteChannel seekable = new SeekableChannelWrapper(channel);
+                assertTrue(name + ": seekable channel", Arrays.equals(expected, write(parser.parse(seekable))));
+            }
+        }
+    }
+
+    public void testRandomAccessFile() throws IOException, URISyntaxException {
+        final String name = "presentations/schedule_with_presentation_between_two_songs win 8.ews";
+        final Path file = Paths.get(getClass().getResource(name).toURI());
+        final Schedule expected = new EwsParser().parse(file);
+
+        try (EwsFile ewsFile = EwsFile.open(file)) {
+            assertEquals(expected.getEntries().size(), ewsFile.entryCount());
+
+            long previousEnd = 0;
+            for (int i = ewsFile.entryCount() - 1; i >= 0; i--) {
+                final ScheduleEntry entry = ewsFile.entry(i);
+                assertEquals(expected.getEntries().get(i).getTitle(), entry.getTitle());
+                assertEquals(expected.getEntries().get(i).getType(), entry.getType());
+
+                final EntryRecord record = ewsFile.record(i);
+                final EntryLayout layout = ewsFile.layout(i);
+                assertEquals(record.getRecordOffset(), layout.getRecord().getOffset());
+                assertEquals(record.getContentPointer(), layout.getContent().getOffset());
+                assertTrue(layout.getContent().getEnd() <= ewsFile.size());
+
+                if (entry.getPresentation() != null) {
+                    assertEquals(record.getPresentationLength(), layout.getPresentation().getLength());
+                    assertEquals(layout.getContent().getEnd(), layout.getPresentation().getOffset());
+                } else {
+                    assertNull(layout.getPresentation());
+                }
+            }
+        }
+    }
+
+    public void testPatcher() throws IOException {
+        final byte[] original = Tools.loadResource(getClass(), "lorem.ews");
+        final Path file = Files.createTempFile("patch", ".ews");
+        try {
+            Files.write(file, original);
+
+            try (EwsPatcher patcher = EwsPatcher.open(file)) {
+                assertEquals(new EwsParser().parse(ByteBuffer.wrap(original)).getEntries().size(), patcher.entryCount());
+                patcher.set(1, EwsPatcher.Field.TITLE, "Patched title");
+                patcher.set(1, EwsPatcher.Field.SONG_NUMBER, "1234567890");
+                patcher.set(0, EwsPatcher.Field.AUTHOR, null);
+                assertEquals("Patched title", patcher.record(1).getTitle());
+
+                try {
+                    patcher.set(0, EwsPatcher.Field.SONG_NUMBER, "12345678901");
+                    fail("Expected IllegalArgumentException");
+                } catch (final IllegalArgumentException e) {
+                    // Expected: a terminator is required.
+                }
+            }
+
+            final byte[] patched = Files.readAllBytes(file);
+            assertEquals(original.length, patched.length);
+
+            final Schedule expected = new EwsParser().parse(ByteBuffer.wrap(original));
+            final Schedule actual = new EwsParser().parse(ByteBuffer.wrap(patched));
+            expected.getEntries().get(1).setTitle("Patched title");
+            expected.getEntries().get(1).setSongNumber("1234567890");
+            expected.getEntries().get(0).setAuthor(null);
+            assertEquals(expected.getEntries().size(), actual.getEntries().size());
+            for (int i = 0; i < expected.getEntries().size(); i++) {
+                final ScheduleEntry expectedEntry = expected.getEntries().get(i);
+                final ScheduleEntry actualEntry = actual.getEntries().get(i);
+                assertEquals(expectedEntry.getTitle(), actualEntry.getTitle());
+                assertEquals(expectedEntry.getAuthor(), actualEntry.getAuthor());
+                assertEquals(expectedEntry.getCopyright(), actualEntry.getCopyright());
+                assertEquals(expectedEntry.getSongNumber(), actualEntry.getSongNumber());
+                assertEquals(RtfWriter.writeToString(((TextContent) expectedEntry.getContent()).getText()),
+                             RtfWriter.writeToString(((TextContent) actualEntry.getContent()).getText()));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static byte[] write(final Schedule schedule) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new EwsWriter(out).write(schedule);
+        return out.toByteArray();
+    }
+
+    /**
+     * Hides the actual type of a channel, which otherwise would be mapped.
+     */
+    private static class SeekableChannelWrapper implements SeekableByteChannel {
+        private final SeekableByteChannel _channel;
+
+        SeekableChannelWrapper(final SeekableByteChannel channel) {
+            _channel = channel;
+        }
+
+        public int read(final ByteBuffer dst) throws IOException {
+            return _channel.read(dst);
+        }
+
+        public int write(final ByteBuffer src) throws IOException {
+            return _channel.write(src);
+        }
+
+        public long position() throws IOException {
+            return _channel.position();
+        }
+
+        public SeekableByteChannel position(final long newPosition) throws IOException {
+            _channel.position(newPosition);
+            return this;
+        }
+
+        public long size() throws IOException {
+            return _channel.size();
+        }
+
+        public SeekableByteChannel truncate(final long size) throws IOException {
+            _channel.truncate(size);
+            return this;
+        }
+
+        public boolean isOpen() {
+            return _channel.isOpen();
+        }
+
+        public void close() throws IOException {
+            _channel.close();
+        }
+    }
 }
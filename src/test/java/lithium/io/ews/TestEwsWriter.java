@@ -20,12 +20,18 @@ package lithium.io.ews;
 import java.awt.*;
 import java.io.*;
 import java.nio.*;
+import java.nio.channels.*;
 import java.nio.charset.*;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 import lithium.io.*;
 import lithium.io.rtf.*;
 import static org.junit.Assert.*;
 import org.junit.*;
+import org.junit.rules.*;
 
 /**
  * Test case for {@link EwsParser}.
@@ -35,6 +41,9 @@ import org.junit.*;
 
 public class TestEwsWriter
 {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testWriteScheduleFile() throws IOException {
         TextNode rtfNode1 = new TextNode();
@@ -236,6 +245,69 @@ public class TestEwsWriter
         assertEquals(color, background.getColor());
     }
 
+    @Test
+    public void testWriteScheduleWithGradientBackground() throws IOException {
+        // Write
+        GradientBackground gradient = new GradientBackground();
+        gradient.setRgbColor1(RgbColor.of(12, 34, 56));
+        gradient.setRgbColor2(RgbColor.fromRgb(0xfedcba));
+        gradient.setStyle(ScheduleEntry.GradientStyle.HORIZONTAL);
+        gradient.setVariant(ScheduleEntry.GradientVariant.BILINEAR);
+        ScheduleEntry entry1 = TestUtils.createEntry("Song with gradient background", "first sentence 1");
+        entry1.setBackground(gradient);
+
+        Schedule writeSchedule = new Schedule();
+        writeSchedule.getEntries().add(entry1);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final EwsWriter writer = new EwsWriter( out );
+        writer.write(writeSchedule);
+
+        // Read
+        final byte[] scheduleFileActual = out.toByteArray();
+
+        EwsParser parser = new EwsParser();
+        Schedule readSchedule = parser.parse(ByteBuffer.wrap(scheduleFileActual));
+
+        GradientBackground background = (GradientBackground) readSchedule.getEntries().get(0).getBackground();
+        assertEquals(RgbColor.of(12, 34, 56), background.getRgbColor1());
+        assertEquals(RgbColor.fromRgb(0xfedcba), background.getRgbColor2());
+        assertEquals(new Color(0xfedcba), background.getColor2());
+        assertEquals(ScheduleEntry.GradientStyle.HORIZONTAL, background.getStyle());
+        assertEquals(ScheduleEntry.GradientVariant.BILINEAR, background.getVariant());
+    }
+
+    @Test
+    public void testWriteScheduleWithTimestamp() throws IOException {
+        // Write
+        final LocalDateTime[] timestamps = {
+                LocalDateTime.of(2013, 3, 31, 2, 30, 15, 123000000),
+                LocalDateTime.of(2021, 10, 31, 23, 59, 59, 999000000),
+                LocalDateTime.of(1899, 12, 29, 6, 0)
+        };
+
+        Schedule writeSchedule = new Schedule();
+        for (final LocalDateTime timestamp : timestamps) {
+            ScheduleEntry entry = TestUtils.createEntry("Song", "first sentence 1");
+            entry.setLocalTimestamp(timestamp);
+            writeSchedule.getEntries().add(entry);
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final EwsWriter writer = new EwsWriter( out );
+        writer.write(writeSchedule);
+
+        // Read
+        final byte[] scheduleFileActual = out.toByteArray();
+
+        EwsParser parser = new EwsParser();
+        Schedule readSchedule = parser.parse(ByteBuffer.wrap(scheduleFileActual));
+
+        for (int i = 0; i < timestamps.length; i++) {
+            assertEquals(timestamps[i], readSchedule.getEntries().get(i).getLocalTimestamp());
+        }
+    }
+
     @Test
     public void testWriteScheduleWithBackgroundImage() throws IOException {
         // Write
@@ -300,6 +372,367 @@ public class TestEwsWriter
         }
     }
 
+    @Test
+    public void testWriteWithDirectBuffer() throws IOException {
+        final byte[] image = Tools.loadResource(getClass(), "image1.jpg");
+
+        ScheduleEntry entry1 = TestUtils.createEntry("Song with image background", "first sentence 1");
+        entry1.setBackground(new ImageBackground("image1.jpg", image));
+        ScheduleEntry entry2 = TestUtils.createEntry("A title that is much too long to fit in the title field of an entry record", "first sentence 2");
+
+        Schedule schedule = new Schedule();
+        schedule.getEntries().add(entry1);
+        schedule.getEntries().add(entry2);
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        final EwsWriter expectedWriter = new EwsWriter(expected);
+        expectedWriter.setParseListener(ParseListener.IGNORE);
+        expectedWriter.write(schedule);
+
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        final EwsWriter writer = new EwsWriter(actual, ByteBuffer.allocateDirect(0x800));
+        final ParseDiagnostics diagnostics = new ParseDiagnostics();
+        writer.setParseListener(diagnostics);
+        writer.write(schedule);
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+        assertEquals(1, diagnostics.getCount(ParseWarning.Kind.TRUNCATED_STRING));
+
+        final Schedule readSchedule = new EwsParser().parse(ByteBuffer.wrap(actual.toByteArray()));
+        assertEquals(2, readSchedule.getEntries().size());
+        assertEquals(entry2.getTitle().substring(0, 50), readSchedule.getEntries().get(1).getTitle());
+        assertEquals(image.length, ((ImageBackground) readSchedule.getEntries().get(0).getBackground()).getImage().getLength());
+    }
+
+    @Test
+    public void testWriteToChannel() throws IOException {
+        final Path source = temporaryFolder.getRoot().toPath().resolve("source.ews");
+        Files.write(source, Tools.loadResource(getClass(), "schedule_with_background_image.ews"));
+
+        final EwsParser parser = new EwsParser();
+        final Schedule loaded = parser.parse(source);
+        final ParseOptions options = new ParseOptions();
+        options.setAllMedia(ParseOptions.MediaPolicy.DEFER);
+        parser.setOptions(options);
+        final Schedule deferred = parser.parse(source);
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new EwsWriter(expected).write(loaded);
+
+        final Path mappedTarget = temporaryFolder.getRoot().toPath().resolve("mapped.ews");
+        try (final FileChannel channel = FileChannel.open(mappedTarget, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            new EwsWriter(channel).write(loaded);
+        }
+        assertArrayEquals(expected.toByteArray(), Files.readAllBytes(mappedTarget));
+
+        final Path deferredTarget = temporaryFolder.getRoot().toPath().resolve("deferred.ews");
+        try (final FileChannel channel = FileChannel.open(deferredTarget, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            new EwsWriter(channel, ByteBuffer.allocate(0x800)).write(deferred);
+        }
+        assertArrayEquals(expected.toByteArray(), Files.readAllBytes(deferredTarget));
+
+        final BinaryContent image = ((ImageBackground) deferred.getEntries().get(0).getBackground()).getImage();
+        assertFalse("Image should be transferred without loading it", image.isLoaded());
+    }
+
+    @Test
+    public void testWriteInParallel() throws IOException {
+        final Schedule schedule = new EwsParser().parse(ByteBuffer.wrap(Tools.loadResource(getClass(), "lorem.ews")));
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new EwsWriter(expected).write(schedule);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            final EwsWriter writer = new EwsWriter(actual);
+            writer.setExecutor(executor);
+            writer.setMaximumTasksInFlight(2);
+            writer.write(schedule);
+            assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testStreamingWriter() throws IOException {
+        final byte[] image = Tools.loadResource(getClass(), "image1.jpg");
+        final Schedule schedule = new EwsParser().parse(ByteBuffer.wrap(Tools.loadResource(getClass(), "lorem.ews")));
+        ScheduleEntry entry1 = TestUtils.createEntry("Song with video background", "first sentence 1");
+        entry1.setBackground(new VideoBackground("video.mp4", image, new byte[]{0, 1, 2}));
+        schedule.getEntries().add(entry1);
+        schedule.getEntries().addAll(new EwsParser().parse(ByteBuffer.wrap(Tools.loadResource(getClass(), "presentations/schedule_with_presentation_between_two_songs win 8.ews"))).getEntries());
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        new EwsWriter(expected).write(schedule);
+
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try (final EwsStreamingWriter writer = new EwsStreamingWriter(Channels.newChannel(actual), temporaryFolder.getRoot().toPath())) {
+            for (final ScheduleEntry entry : schedule.getEntries()) {
+                writer.addEntry(entry);
+            }
+            writer.finish();
+            assertEquals(schedule.getEntries().size(), writer.getEntryCount());
+        }
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+        assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void testStreamingWriterFailure() throws IOException {
+        final BinaryContent skipped = new BinaryContent();
+        skipped.setSource(0, 100, null);
+        final ScheduleEntry unavailable = new ScheduleEntry("Skipped video", skipped);
+        unavailable.setType(ScheduleEntry.Type.VIDEO);
+
+        try (final EwsStreamingWriter writer = new EwsStreamingWriter(Channels.newChannel(new ByteArrayOutputStream()), temporaryFolder.getRoot().toPath())) {
+            writer.addEntry(TestUtils.createEntry("Song", "first sentence 1"));
+            try {
+                writer.addEntry(unavailable);
+                fail("Expected IOException");
+            } catch (final IOException e) {
+                // Expected: the content was skipped.
+            }
+            assertEquals(1, writer.getEntryCount());
+
+            try {
+                writer.addEntry(TestUtils.createEntry("Song", "first sentence 2"));
+                fail("Expected IllegalStateException");
+            } catch (final IllegalStateException e) {
+                // Expected: the entry table would be misaligned.
+            }
+            try {
+                writer.finish();
+                fail("Expected IllegalStateException");
+            } catch (final IllegalStateException e) {
+                // Expected: the schedule would be corrupt.
+            }
+        }
+        assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+
+    @Test
+    public void testWriteRawData() throws IOException {
+        final EwsParser parser = new EwsParser();
+        final ParseOptions options = new ParseOptions();
+        options.setKeepRawData(true);
+        options.setAllMedia(ParseOptions.MediaPolicy.SKIP);
+        parser.setOptions(options);
+
+        for (final String name : new String[]{"lorem.ews", "special_chars.ews", "schedule_with_background_image.ews", "presentations/schedule_with_presentation_between_two_songs win 8.ews"}) {
+            final byte[] original = Tools.loadResource(getClass(), name);
+            final Schedule schedule = parser.parse(ByteBuffer.wrap(original));
+            for (final ScheduleEntry entry : schedule.getEntries()) {
+                assertFalse(name, entry.isModified());
+            }
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new EwsWriter(out).write(schedule);
+            final byte[] written = out.toByteArray();
+            assertArrayEquals(name, Arrays.copyOfRange(original, EwsWriter.SCHEDULE_HEADER_LENGTH, original.length), Arrays.copyOfRange(written, EwsWriter.SCHEDULE_HEADER_LENGTH, written.length));
+        }
+
+        // Modify the first entry, which moves the content of the others.
+        final Schedule schedule = parser.parse(ByteBuffer.wrap(Tools.loadResource(getClass(), "lorem.ews")));
+        final ScheduleEntry first = schedule.getEntries().get(0);
+        first.setTitle("Modified");
+        assertTrue(first.isModified());
+        first.setContent(new TextContent(TestUtils.createRtfGroup("first sentence")));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new EwsWriter(out).write(schedule);
+
+        final Schedule expected = new EwsParser().parse(ByteBuffer.wrap(Tools.loadResource(getClass(), "lorem.ews")));
+        final Schedule actual = new EwsParser().parse(ByteBuffer.wrap(out.toByteArray()));
+        assertEquals(expected.getEntries().size(), actual.getEntries().size());
+        assertEquals("Modified", actual.getEntries().get(0).getTitle());
+        for (int i = 1; i < expected.getEntries().size(); i++) {
+            final ScheduleEntry expectedEntry = expected.getEntries().get(i);
+            final ScheduleEntry actualEntry = actual.getEntries().get(i);
+            assertEquals(expectedEntry.getTitle(), actualEntry.getTitle());
+            assertEquals(TestUtils.getTextFromContent((TextContent) expectedEntry.getContent()), TestUtils.getTextFromContent((TextContent) actualEntry.getContent()));
+        }
+    }
+
+    @Test
+    public void testWriteRawDataModifiedInPlace() throws IOException {
+        final byte[] original = Tools.loadResource(getClass(), "lorem.ews");
+        for (final boolean lazy : new boolean[]{false, true}) {
+            final EwsParser parser = new EwsParser();
+            final ParseOptions options = new ParseOptions();
+            options.setKeepRawData(true);
+            parser.setOptions(options);
+            parser.setLazyTextContent(lazy);
+
+            final Schedule schedule = parser.parse(ByteBuffer.wrap(original));
+            assertTrue(schedule.getEntries().size() > 2);
+
+            // Reading the text doesn't modify the entry.
+            final TextContent first = (TextContent) schedule.getEntries().get(0).getContent();
+            final TextNode node = findTextNode(first.getText());
+            assertNotNull(node);
+            assertFalse(schedule.getEntries().get(0).isModified());
+
+            node.setText("Modified in place");
+            assertTrue(schedule.getEntries().get(0).isModified());
+
+            ((TextContent) schedule.getEntries().get(1).getContent()).setText(TestUtils.createRtfGroup("replaced"));
+            assertTrue(schedule.getEntries().get(1).isModified());
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            new EwsWriter(out).write(schedule);
+
+            final Schedule expected = new EwsParser().parse(ByteBuffer.wrap(original));
+            final Schedule actual = new EwsParser().parse(ByteBuffer.wrap(out.toByteArray()));
+            assertEquals(expected.getEntries().size(), actual.getEntries().size());
+            assertEquals("Modified in place", findTextNode(((TextContent) actual.getEntries().get(0).getContent()).getText()).getText());
+            assertEquals(TestUtils.getTextFromContent(new TextContent(TestUtils.createRtfGroup("replaced"))), TestUtils.getTextFromContent((TextContent) actual.getEntries().get(1).getContent()));
+            for (int i = 2; i < expected.getEntries().size(); i++) {
+                assertFalse(schedule.getEntries().get(i).isModified());
+                assertEquals(TestUtils.getTextFromContent((TextContent) expected.getEntries().get(i).getContent()), TestUtils.getTextFromContent((TextContent) actual.getEntries().get(i).getContent()));
+            }
+        }
+    }
+
+    @Test
+    public void testWriteRawDataModifiedMedia() throws IOException {
+        final EwsParser parser = new EwsParser();
+        final ParseOptions options = new ParseOptions();
+        options.setKeepRawData(true);
+        parser.setOptions(options);
+
+        // Background setters and changes to media bytes.
+        final byte[] original = Tools.loadResource(getClass(), "schedule_with_background_image.ews");
+        Schedule schedule = parser.parse(ByteBuffer.wrap(original));
+        final ScheduleEntry entry = schedule.getEntries().get(0);
+        final ImageBackground background = (ImageBackground) entry.getBackground();
+        final boolean tiled = background.isTiled();
+        background.getImage().getBuffer();
+        assertFalse(entry.isModified());
+
+        background.setTiled(!tiled);
+        assertTrue(entry.isModified());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new EwsWriter(out).write(schedule);
+        schedule = new EwsParser().parse(ByteBuffer.wrap(out.toByteArray()));
+        assertEquals(!tiled, ((ImageBackground) schedule.getEntries().get(0).getBackground()).isTiled());
+
+        schedule = parser.parse(ByteBuffer.wrap(original));
+        final BinaryContent image = ((ImageBackground) schedule.getEntries().get(0).getBackground()).getImage();
+        image.getBytes()[0] ^= (byte) 0xff;
+        assertTrue(schedule.getEntries().get(0).isModified());
+
+        out = new ByteArrayOutputStream();
+        new EwsWriter(out).write(schedule);
+        schedule = new EwsParser().parse(ByteBuffer.wrap(out.toByteArray()));
+        assertArrayEquals(image.getBytes(), ((ImageBackground) schedule.getEntries().get(0).getBackground()).getImage().getBytes());
+
+        // Slides of a presentation.
+        schedule = parser.parse(ByteBuffer.wrap(Tools.loadResource(getClass(), "presentations/schedule_with_presentation_between_two_songs win 8.ews")));
+        ScheduleEntry presentationEntry = null;
+        for (final ScheduleEntry candidate : schedule.getEntries()) {
+            if (candidate.getPresentation() != null && candidate.getPresentation().getSlideCount() > 0) {
+                presentationEntry = candidate;
+            }
+        }
+        assertNotNull(presentationEntry);
+        final Slide slide = presentationEntry.getPresentation().slide(0);
+        assertFalse(presentationEntry.isModified());
+
+        slide.setContent(new byte[]{1, 2, 3});
+        assertTrue(presentationEntry.isModified());
+        presentationEntry.setModified(false);
+        assertFalse(presentationEntry.isModified());
+    }
+
+    private static TextNode findTextNode(final RtfGroup group) {
+        for (final RtfNode node : group.getNodes()) {
+            if (node instanceof TextNode && !((TextNode) node).getText().trim().isEmpty()) {
+                return (TextNode) node;
+            } else if (node instanceof RtfGroup) {
+                final TextNode result = findTextNode((RtfGroup) node);
+                if (result != null) {
+                    return result;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testParseListener() throws IOException {
+        final ScheduleEntry entry = TestUtils.createEntry("Song", "first sentence");
+        final RtfGroup text = ((TextContent) entry.getContent()).getText();
+        text.addNode(new ControlWord("mac", null, false));
+        final Schedule schedule = new Schedule();
+        schedule.getEntries().add(entry);
+
+        final ParseDiagnostics diagnostics = new ParseDiagnostics();
+        final EwsWriter writer = new EwsWriter(new ByteArrayOutputStream());
+        writer.setParseListener(diagnostics);
+        writer.write(schedule);
+
+        assertEquals(1, diagnostics.getCount(ParseWarning.Kind.UNSUPPORTED_CODE_PAGE));
+        assertEquals("WARNING: Found code page 'mac', which is not supported.", diagnostics.getWarnings().get(0).getMessage());
+    }
+
+    @Test
+    public void testCompressionPresets() throws IOException {
+        final Schedule schedule = new EwsParser().parse(ByteBuffer.wrap(Tools.loadResource(getClass(), "lorem.ews")));
+
+        final ByteArrayOutputStream defaultOut = new ByteArrayOutputStream();
+        new EwsWriter(defaultOut).write(schedule);
+
+        final Map<EwsWriter.Compression, Integer> sizes = new EnumMap<>(EwsWriter.Compression.class);
+        for (final EwsWriter.Compression compression : EwsWriter.Compression.values()) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final EwsWriter writer = new EwsWriter(out);
+            writer.setCompression(compression);
+            writer.write(schedule);
+            assertReadsBack(schedule, out.toByteArray());
+            sizes.put(compression, out.size());
+        }
+        assertEquals(defaultOut.size(), (int) sizes.get(EwsWriter.Compression.DEFAULT));
+        assertTrue(sizes.get(EwsWriter.Compression.SMALLEST) <= sizes.get(EwsWriter.Compression.FASTEST));
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final EwsWriter writer = new EwsWriter(out);
+        writer.setCompressionStrategy(java.util.zip.Deflater.HUFFMAN_ONLY);
+        writer.write(schedule);
+        assertReadsBack(schedule, out.toByteArray());
+    }
+
+    private static void assertReadsBack(final Schedule expected, final byte[] scheduleFile) throws IOException {
+        final Schedule actual = new EwsParser().parse(ByteBuffer.wrap(scheduleFile));
+        assertEquals(expected.getEntries().size(), actual.getEntries().size());
+        for (int i = 0; i < expected.getEntries().size(); i++) {
+            assertEquals(RtfWriter.writeToString(((TextContent) expected.getEntries().get(i).getContent()).getText()),
+                         RtfWriter.writeToString(((TextContent) actual.getEntries().get(i).getContent()).getText()));
+        }
+    }
+
+    @Test
+    public void testComputeSize() throws IOException {
+        final byte[] image = Tools.loadResource(getClass(), "image1.jpg");
+
+        ScheduleEntry entry1 = TestUtils.createEntry("Song with video background", "first sentence 1");
+        entry1.setBackground(new VideoBackground("video.mp4", image, new byte[]{0, 1, 2}));
+        ScheduleEntry entry2 = TestUtils.createEntry("Song with image background", "first sentence 2");
+        entry2.setBackground(new ImageBackground("image1.jpg", image));
+
+        Schedule schedule = new Schedule();
+        final EwsWriter writer = new EwsWriter(new ByteArrayOutputStream());
+        assertEquals(62, writer.computeSize(schedule));
+
+        schedule.getEntries().add(entry1);
+        schedule.getEntries().add(entry2);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new EwsWriter(out).write(schedule);
+        assertEquals(out.size(), writer.computeSize(schedule));
+    }
+
     @Test
     public void testWriteScheduleWithPresentation() throws IOException {
         // GIVEN
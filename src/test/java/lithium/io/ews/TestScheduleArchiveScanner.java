@@ -0,0 +1,116 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lithium.io.ews;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+import org.junit.rules.*;
+
+/**
+ * Test case for {@link ScheduleArchiveScanner}.
+ *
+ * @author Gerrit Meinders
+ */
+public class TestScheduleArchiveScanner
+{
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testScan() throws IOException {
+        final Path root = temporaryFolder.getRoot().toPath();
+        final Path subdirectory = Files.createDirectory(root.resolve("2013"));
+        Files.write(root.resolve("lorem.ews"), Tools.loadResource(getClass(), "lorem.ews"));
+        Files.write(subdirectory.resolve("output2.ews"), Tools.loadResource(getClass(), "output2.ews"));
+        Files.write(subdirectory.resolve("special_chars.EWS"), Tools.loadResource(getClass(), "special_chars.ews"));
+        Files.write(subdirectory.resolve("broken.ews"), new byte[]{1, 2, 3});
+        Files.write(subdirectory.resolve("image1.jpg"), Tools.loadResource(getClass(), "image1.jpg"));
+
+        final Map<String, Schedule> parsed = new ConcurrentHashMap<>();
+        final Map<String, Throwable> failed = new ConcurrentHashMap<>();
+
+        final ScheduleArchiveScanner scanner = new ScheduleArchiveScanner();
+        scanner.setParallelism(2);
+        scanner.setMaximumFilesInFlight(1);
+        scanner.scan(root, new ScheduleArchiveScanner.Listener() {
+            @Override
+            public void scheduleParsed(final Path file, final Schedule schedule) {
+                parsed.put(file.getFileName().toString(), schedule);
+            }
+
+            @Override
+            public void scheduleFailed(final Path file, final Throwable exception) {
+                failed.put(file.getFileName().toString(), exception);
+            }
+        });
+
+        assertEquals(new HashSet<>(Arrays.asList("lorem.ews", "output2.ews", "special_chars.EWS")), parsed.keySet());
+        assertEquals(Collections.singleton("broken.ews"), failed.keySet());
+        assertEquals(3, parsed.get("lorem.ews").getEntries().size());
+
+        assertEquals(3, scanner.getParsedCount());
+        assertEquals(1, scanner.getFailedCount());
+        assertTrue(scanner.getByteCount() > 0);
+        assertTrue(scanner.getThroughput() > 0.0);
+    }
+
+    @Test
+    public void testScanWithErrors() throws IOException {
+        final Path root = temporaryFolder.getRoot().toPath();
+        Files.write(root.resolve("lorem.ews"), Tools.loadResource(getClass(), "lorem.ews"));
+        Files.write(root.resolve("output2.ews"), Tools.loadResource(getClass(), "output2.ews"));
+        Files.write(root.resolve("special_chars.ews"), Tools.loadResource(getClass(), "special_chars.ews"));
+
+        final Map<String, Throwable> failed = new ConcurrentHashMap<>();
+        final ScheduleArchiveScanner scanner = new ScheduleArchiveScanner(() -> new EwsParser() {
+            @Override
+            public Schedule parse(final Path file) throws IOException {
+                if (file.endsWith("output2.ews")) {
+                    throw new OutOfMemoryError("Simulated");
+                }
+                return super.parse(file);
+            }
+        });
+        scanner.setParallelism(2);
+        scanner.scan(root, new ScheduleArchiveScanner.Listener() {
+            @Override
+            public void scheduleParsed(final Path file, final Schedule schedule) {
+                if (file.endsWith("special_chars.ews")) {
+                    throw new IllegalStateException("Simulated");
+                }
+            }
+
+            @Override
+            public void scheduleFailed(final Path file, final Throwable exception) {
+                failed.put(file.getFileName().toString(), exception);
+                throw new IllegalStateException("Ignored");
+            }
+        });
+
+        assertEquals(2, failed.size());
+        assertTrue(failed.get("output2.ews") instanceof OutOfMemoryError);
+        assertTrue(failed.get("special_chars.ews") instanceof IllegalStateException);
+        assertEquals(1, scanner.getParsedCount());
+        assertEquals(2, scanner.getFailedCount());
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2026 Gerrit Meinders
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package lithium.io.rtf;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+import org.junit.*;
+
+/**
+ * Test case for {@link RtfParser}.
+ *
+ * @author Gerrit Meinders
+ */
+public class TestRtfParser
+{
+    /**
+     * Character set used by documents that specify {@code \ansi}.
+     */
+    private static final Charset ANSI = Charset.forName("windows-1252");
+
+    private static final String DOCUMENT = "{\\rtf1\\ansi\\deff0{\\fonttbl{\\f0\\fnil Tahoma;}}\\li-720 Caf\\'e9 \\'C9t\\'e9\\par}";
+
+    @Test
+    public void testHexEscapes() throws IOException {
+        final RtfGroup document = new RtfParser().parse(bytes("{\\rtf1\\ansi \\'e9\\'C9x\\'80\\'7b}"));
+
+        final List<RtfNode> nodes = document.getNodes();
+        assertEquals(7, nodes.size());
+        assertControlWord("rtf", 1, false, nodes.get(0));
+        assertControlWord("ansi", null, true, nodes.get(1));
+        assertText("é", nodes.get(2));
+        assertText("É", nodes.get(3));
+        assertText("x", nodes.get(4));
+        assertText("€", nodes.get(5));
+        assertText("{", nodes.get(6));
+    }
+
+    @Test
+    public void testNumericParameters() throws IOException {
+        final RtfGroup document = new RtfParser().parse(bytes("{\\rtf1\\ansi\\li-720\\fi-2147483648\\sb2147483647 \\sa0 x}"));
+
+        final List<RtfNode> nodes = document.getNodes();
+        assertEquals(7, nodes.size());
+        assertControlWord("li", -720, false, nodes.get(2));
+        assertControlWord("fi", Integer.MIN_VALUE, false, nodes.get(3));
+        assertControlWord("sb", Integer.MAX_VALUE, true, nodes.get(4));
+        assertControlWord("sa", 0, true, nodes.get(5));
+        assertText("x", nodes.get(6));
+    }
+
+    @Test
+    public void testNumericParameterOutOfRange() throws IOException {
+        for (final String parameter : Arrays.asList("2147483648", "-2147483649", "99999999999999999999", "-")) {
+            try {
+                new RtfParser().parse(bytes("{\\rtf1\\ansi\\li" + parameter + " x}"));
+                fail("Expected ParseException for: " + parameter);
+            } catch (final ParseException e) {
+                // Expected.
+            }
+        }
+    }
+
+    @Test
+    public void testNonAsciiText() throws IOException {
+        final RtfGroup document = new RtfParser().parse(bytes("{\\rtf1\\ansi Café naïve €5\\par plain}"));
+
+        final List<RtfNode> nodes = document.getNodes();
+        assertEquals(5, nodes.size());
+        assertText("Café naïve €5", nodes.get(2));
+        assertControlWord("par", null, true, nodes.get(3));
+        assertText("plain", nodes.get(4));
+    }
+
+    @Test
+    public void testParseRange() throws IOException {
+        final byte[] document = bytes(DOCUMENT);
+        final byte[] padded = pad(document);
+        final String expected = RtfWriter.writeToString(new RtfParser().parse(document));
+
+        assertEquals(expected, RtfWriter.writeToString(new RtfParser().parse(padded, 3, document.length)));
+
+        try {
+            new RtfParser().parse(padded, padded.length - document.length + 1, document.length);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (final IndexOutOfBoundsException e) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testParseByteBuffer() throws IOException {
+        final byte[] document = bytes(DOCUMENT);
+        final String expected = RtfWriter.writeToString(new RtfParser().parse(document));
+
+        // Array-backed buffer with a non-zero position.
+        final ByteBuffer heap = ByteBuffer.wrap(pad(document));
+        heap.position(3);
+        heap.limit(3 + document.length);
+        assertEquals(expected, RtfWriter.writeToString(new RtfParser().parse(heap)));
+        assertEquals(3, heap.position());
+
+        // Slice with a non-zero array offset.
+        final ByteBuffer slice = heap.slice();
+        assertEquals(3, slice.arrayOffset());
+        assertEquals(expected, RtfWriter.writeToString(new RtfParser().parse(slice)));
+
+        // Direct buffer with a non-zero position.
+        final ByteBuffer direct = ByteBuffer.allocateDirect(document.length + 6);
+        direct.put(pad(document));
+        direct.position(3);
+        direct.limit(3 + document.length);
+        assertEquals(expected, RtfWriter.writeToString(new RtfParser().parse(direct)));
+        assertEquals(3, direct.position());
+    }
+
+    private static byte[] bytes(final String document) {
+        return document.getBytes(ANSI);
+    }
+
+    /**
+     * Surrounds the given document with bytes that aren't valid RTF.
+     */
+    private static byte[] pad(final byte[] document) {
+        final byte[] result = new byte[document.length + 6];
+        Arrays.fill(result, (byte) '}');
+        System.arraycopy(document, 0, result, 3, document.length);
+        return result;
+    }
+
+    private static void assertControlWord(final String word, final Integer numericParameter, final boolean delimitedBySpace, final RtfNode node) {
+        assertTrue("Expected control word, but was: " + node, node instanceof ControlWord);
+        final ControlWord controlWord = (ControlWord) node;
+        assertEquals(word, controlWord.getWord());
+        assertEquals(numericParameter, controlWord.getNumericParameter());
+        assertEquals(delimitedBySpace, controlWord.isDelimitedBySpace());
+    }
+
+    private static void assertText(final String text, final RtfNode node) {
+        assertTrue("Expected text, but was: " + node, node instanceof TextNode);
+        assertEquals(text, ((TextNode) node).getText());
+    }
+}